@@ -0,0 +1,103 @@
+package com.rntensorflow;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import org.tensorflow.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recycles the direct buffers input tensors are built from.
+ *
+ * Buffers are keyed by input name, data type and shape. Tensor.create copies the buffer into the tensor, so a buffer
+ * can be handed back as soon as its tensor exists and the next inference with the same signature reuses it.
+ */
+public class BufferArena {
+
+    private static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+
+    private final long maxBytes;
+    private final ConcurrentMap<String, Queue<ByteBuffer>> buffers = new ConcurrentHashMap<>();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong pooledBuffers = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public BufferArena() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public BufferArena(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a cleared direct buffer in native byte order with its limit set to numBytes.
+     */
+    public ByteBuffer acquire(String name, DataType dtype, long[] shape, int numBytes) {
+        Queue<ByteBuffer> queue = buffers.get(key(name, dtype, shape));
+        ByteBuffer buffer = queue != null ? queue.poll() : null;
+
+        if(buffer != null) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            pooledBuffers.decrementAndGet();
+        }
+
+        if(buffer != null && buffer.capacity() >= numBytes) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(numBytes).order(ByteOrder.nativeOrder());
+        }
+
+        buffer.clear();
+        buffer.limit(numBytes);
+        return buffer;
+    }
+
+    public void release(String name, DataType dtype, long[] shape, ByteBuffer buffer) {
+        if(pooledBytes.addAndGet(buffer.capacity()) > maxBytes) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            return;
+        }
+
+        String key = key(name, dtype, shape);
+        Queue<ByteBuffer> queue = buffers.get(key);
+        if(queue == null) {
+            Queue<ByteBuffer> newQueue = new ConcurrentLinkedQueue<>();
+            queue = buffers.putIfAbsent(key, newQueue);
+            if(queue == null) {
+                queue = newQueue;
+            }
+        }
+        queue.offer(buffer);
+        pooledBuffers.incrementAndGet();
+    }
+
+    public void clear() {
+        buffers.clear();
+        pooledBytes.set(0);
+        pooledBuffers.set(0);
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = new WritableNativeMap();
+        stats.putDouble("buffers", pooledBuffers.get());
+        stats.putDouble("bytes", pooledBytes.get());
+        stats.putDouble("maxBytes", maxBytes);
+        stats.putDouble("hits", hits.get());
+        stats.putDouble("misses", misses.get());
+        return stats;
+    }
+
+    private static String key(String name, DataType dtype, long[] shape) {
+        return name + ":" + dtype.name() + ":" + Arrays.toString(shape);
+    }
+}
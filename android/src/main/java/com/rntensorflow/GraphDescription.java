@@ -0,0 +1,303 @@
+package com.rntensorflow;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import org.tensorflow.Graph;
+import org.tensorflow.Operation;
+import org.tensorflow.Output;
+import org.tensorflow.Shape;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Metadata of all operations of a graph, collected in one walk so it can be cached and sent in a single payload.
+ *
+ * The TensorFlow 1.3 Java API can not enumerate operations, so the node names, types and inputs are parsed from the
+ * GraphDef bytes when the model is loaded or a graph def is imported, see {@link #parseGraphDef(byte[], String)}. The
+ * graph is not serialized again for a description, as that would copy every weight constant. The outputs of every node
+ * are resolved through the graph.
+ */
+public class GraphDescription {
+
+    private static final int GRAPH_DEF_NODE = 1;
+    private static final int NODE_DEF_NAME = 1;
+    private static final int NODE_DEF_OP = 2;
+    private static final int NODE_DEF_INPUT = 3;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final List<OperationInfo> operations;
+
+    private GraphDescription(List<OperationInfo> operations) {
+        this.operations = operations;
+    }
+
+    public static GraphDescription describe(Graph graph, List<Node> nodes) {
+        List<OperationInfo> operations = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            OperationInfo info = new OperationInfo(node);
+            operations.add(info);
+            Operation operation = graph.operation(info.name);
+            if(operation == null) {
+                continue;
+            }
+            for (int i = 0; i < operation.numOutputs(); i++) {
+                Output output = operation.output(i);
+                info.outputs.add(new OutputInfo(i, output.dataType().name(), dimensions(output.shape())));
+            }
+        }
+        return new GraphDescription(operations);
+    }
+
+    public int getNumOperations() {
+        return operations.size();
+    }
+
+    /**
+     * Returns {operations: [{name, type, inputs, outputs: [{index, dataType, shape}]}], inputs, outputs}. inputs lists
+     * the placeholders, outputs the operations whose outputs are not consumed by any other operation. A shape is null
+     * if its rank is unknown, unknown dimensions are -1.
+     */
+    public WritableMap toWritableMap() {
+        Set<String> consumed = new HashSet<>();
+        for (OperationInfo info : operations) {
+            for (String input : info.inputs) {
+                consumed.add(operationName(input));
+            }
+        }
+
+        WritableArray operationsArray = new WritableNativeArray();
+        WritableArray graphInputs = new WritableNativeArray();
+        WritableArray graphOutputs = new WritableNativeArray();
+        for (OperationInfo info : operations) {
+            operationsArray.pushMap(info.toWritableMap());
+            if("Placeholder".equals(info.type)) {
+                graphInputs.pushString(info.name);
+            }
+            if(!consumed.contains(info.name) && !info.outputs.isEmpty()) {
+                graphOutputs.pushString(info.name);
+            }
+        }
+
+        WritableMap map = new WritableNativeMap();
+        map.putArray("operations", operationsArray);
+        map.putArray("inputs", graphInputs);
+        map.putArray("outputs", graphOutputs);
+        return map;
+    }
+
+    private static long[] dimensions(Shape shape) {
+        if(shape.numDimensions() < 0) {
+            return null;
+        }
+        long[] dimensions = new long[shape.numDimensions()];
+        for (int i = 0; i < dimensions.length; i++) {
+            dimensions[i] = shape.size(i);
+        }
+        return dimensions;
+    }
+
+    /**
+     * Strips the output index ("name:1") and control dependency marker ("^name") from a node input.
+     */
+    private static String operationName(String input) {
+        String name = input.startsWith("^") ? input.substring(1) : input;
+        int colon = name.lastIndexOf(':');
+        return colon > 0 ? name.substring(0, colon) : name;
+    }
+
+    /**
+     * Reads the nodes of a serialized GraphDef, named as they are after an import with the prefix. Attribute values,
+     * like the weights of constants, are skipped without being copied.
+     */
+    static List<Node> parseGraphDef(byte[] graphDef, String prefix) {
+        List<Node> nodes = new ArrayList<>();
+        ProtoReader reader = new ProtoReader(graphDef, 0, graphDef.length);
+        while (reader.hasMore()) {
+            int tag = (int) reader.readVarint();
+            if(tag >>> 3 == GRAPH_DEF_NODE && (tag & 7) == WIRE_LENGTH_DELIMITED) {
+                int length = (int) reader.readVarint();
+                nodes.add(parseNodeDef(new ProtoReader(graphDef, reader.position, reader.position + length), prefix));
+                reader.position += length;
+            } else {
+                reader.skip(tag & 7);
+            }
+        }
+        return nodes;
+    }
+
+    private static Node parseNodeDef(ProtoReader reader, String prefix) {
+        String name = null;
+        String type = null;
+        List<String> inputs = new ArrayList<>();
+        while (reader.hasMore()) {
+            int tag = (int) reader.readVarint();
+            int field = tag >>> 3;
+            if((tag & 7) == WIRE_LENGTH_DELIMITED && field == NODE_DEF_NAME) {
+                name = prefixed(reader.readString(), prefix);
+            } else if((tag & 7) == WIRE_LENGTH_DELIMITED && field == NODE_DEF_OP) {
+                type = reader.readString();
+            } else if((tag & 7) == WIRE_LENGTH_DELIMITED && field == NODE_DEF_INPUT) {
+                String input = reader.readString();
+                inputs.add(input.startsWith("^") ? "^" + prefixed(input.substring(1), prefix) : prefixed(input, prefix));
+            } else {
+                reader.skip(tag & 7);
+            }
+        }
+        return new Node(name, type, inputs);
+    }
+
+    private static String prefixed(String name, String prefix) {
+        return prefix == null || prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static WritableArray toWritableArray(List<String> values) {
+        WritableArray array = new WritableNativeArray();
+        for (String value : values) {
+            array.pushString(value);
+        }
+        return array;
+    }
+
+    /**
+     * Name, type and inputs of a node of a GraphDef.
+     */
+    public static class Node {
+        final String name;
+        final String type;
+        final List<String> inputs;
+
+        Node(String name, String type, List<String> inputs) {
+            this.name = name;
+            this.type = type;
+            this.inputs = Collections.unmodifiableList(inputs);
+        }
+    }
+
+    private static class OperationInfo {
+        final String name;
+        final String type;
+        final List<String> inputs;
+        final List<OutputInfo> outputs = new ArrayList<>();
+
+        OperationInfo(Node node) {
+            this.name = node.name;
+            this.type = node.type;
+            this.inputs = node.inputs;
+        }
+
+        WritableMap toWritableMap() {
+            WritableArray outputsArray = new WritableNativeArray();
+            for (OutputInfo output : outputs) {
+                outputsArray.pushMap(output.toWritableMap());
+            }
+
+            WritableMap map = new WritableNativeMap();
+            map.putString("name", name);
+            map.putString("type", type);
+            map.putArray("inputs", toWritableArray(inputs));
+            map.putArray("outputs", outputsArray);
+            return map;
+        }
+    }
+
+    private static class OutputInfo {
+        final int index;
+        final String dataType;
+        final long[] shape;
+
+        OutputInfo(int index, String dataType, long[] shape) {
+            this.index = index;
+            this.dataType = dataType;
+            this.shape = shape;
+        }
+
+        WritableMap toWritableMap() {
+            WritableMap map = new WritableNativeMap();
+            map.putInt("index", index);
+            map.putString("dataType", dataType);
+            if(shape != null) {
+                WritableArray dimensions = new WritableNativeArray();
+                for (long dimension : shape) {
+                    dimensions.pushDouble(dimension);
+                }
+                map.putArray("shape", dimensions);
+            } else {
+                map.putNull("shape");
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Minimal reader for the protobuf wire format, just enough to walk the nodes of a GraphDef.
+     */
+    private static class ProtoReader {
+        private final byte[] bytes;
+        private final int end;
+        int position;
+
+        ProtoReader(byte[] bytes, int position, int end) {
+            this.bytes = bytes;
+            this.position = position;
+            this.end = end;
+        }
+
+        boolean hasMore() {
+            return position < end;
+        }
+
+        long readVarint() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                if(position >= end) {
+                    throw new IllegalArgumentException("Truncated GraphDef");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        String readString() {
+            int length = (int) readVarint();
+            try {
+                String value = new String(bytes, position, length, "UTF-8");
+                position += length;
+                return value;
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void skip(int wireType) {
+            if(wireType == WIRE_VARINT) {
+                readVarint();
+            } else if(wireType == WIRE_FIXED64) {
+                position += 8;
+            } else if(wireType == WIRE_LENGTH_DELIMITED) {
+                // Read before adding, position += readVarint() would add to the position before the length
+                int length = (int) readVarint();
+                position += length;
+            } else if(wireType == WIRE_FIXED32) {
+                position += 4;
+            } else {
+                throw new IllegalArgumentException("Unsupported wire type " + wireType + " in GraphDef");
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.rntensorflow;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs inference work off the native modules thread.
+ *
+ * Every model id gets its own serial lane, so calls for one model keep their order, while lanes of different
+ * models run in parallel on a pool bounded by the number of cores. Whenever a lane has work it competes for
+ * the next free worker with its priority, so a high priority model jumps ahead of queued background work.
+ *
+ * Model loading runs on a separate loader pool, so several models load in parallel without blocking inference
+ * workers, while the calls queued for a model still wait until it is loaded.
+ *
+ * Concurrent tasks are tracked per lane. A serial call queued after them, like close, only starts once they all
+ * finished, so it never pulls the model out from under a running inference.
+ */
+public class InferenceExecutor {
+
+    public static final int PRIORITY_DEFAULT = 0;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final int MAX_LOADER_THREADS = 4;
+
+    private final ThreadPoolExecutor pool;
+    private final ThreadPoolExecutor loader;
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public InferenceExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public InferenceExecutor(int numThreads) {
+        pool = new ThreadPoolExecutor(numThreads, numThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new InferenceThreadFactory("RNTensorFlowInference-"));
+        pool.allowCoreThreadTimeOut(true);
+        loader = new ThreadPoolExecutor(MAX_LOADER_THREADS, MAX_LOADER_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new InferenceThreadFactory("RNTensorFlowLoader-"));
+        loader.allowCoreThreadTimeOut(true);
+    }
+
+    public void execute(String id, Runnable task) {
+        enqueue(id, new LaneEntry(task, false, false));
+    }
+
+    /**
+     * Keeps the task in order with the calls queued before it, but does not make later concurrent calls wait for it to
+     * finish. Later serial calls still wait. Only use for self contained tasks that are safe to run in parallel on the
+     * same model.
+     */
+    public void executeConcurrently(String id, Runnable task) {
+        enqueue(id, new LaneEntry(task, true, false));
+    }
+
+    /**
+     * Runs a long running task, like loading a model, on the loader pool. Calls queued after it wait until it finished,
+     * but no inference worker is blocked in the meantime.
+     */
+    public void executeLoading(String id, Runnable task) {
+        enqueue(id, new LaneEntry(task, false, true));
+    }
+
+    private void enqueue(String id, LaneEntry entry) {
+        while (true) {
+            Lane lane = getLane(id);
+            synchronized (lane) {
+                if(lane.removed) {
+                    continue;
+                }
+                lane.tasks.add(entry);
+                if(!lane.scheduled) {
+                    lane.scheduled = true;
+                    schedule(lane);
+                }
+                return;
+            }
+        }
+    }
+
+    public void setPriority(String id, int priority) {
+        getLane(id).priority = priority;
+    }
+
+    public int getQueueDepth(String id) {
+        Lane lane = lanes.get(id);
+        if(lane == null) {
+            return 0;
+        }
+        synchronized (lane) {
+            return lane.tasks.size();
+        }
+    }
+
+    /**
+     * Drops the lane of the id once it ran all its queued and concurrent tasks. Calls queued in the meantime still
+     * run on it, so they never run in parallel with the ones before them.
+     */
+    public void release(String id) {
+        Lane lane = lanes.get(id);
+        if(lane == null) {
+            return;
+        }
+        synchronized (lane) {
+            lane.released = true;
+            removeIfIdle(lane);
+        }
+    }
+
+    private Lane getLane(String id) {
+        Lane lane = lanes.get(id);
+        if(lane == null) {
+            Lane newLane = new Lane(id);
+            lane = lanes.putIfAbsent(id, newLane);
+            if(lane == null) {
+                lane = newLane;
+            }
+        }
+        return lane;
+    }
+
+    private void schedule(Lane lane) {
+        pool.execute(new LaneTask(lane, lane.priority, sequence.getAndIncrement()));
+    }
+
+    private void resume(Lane lane) {
+        synchronized (lane) {
+            if(lane.tasks.isEmpty()) {
+                lane.scheduled = false;
+                removeIfIdle(lane);
+            } else {
+                schedule(lane);
+            }
+        }
+    }
+
+    private void finishConcurrent(Lane lane) {
+        synchronized (lane) {
+            lane.inFlight--;
+            if(lane.inFlight == 0 && lane.waiting) {
+                lane.waiting = false;
+                schedule(lane);
+            } else {
+                removeIfIdle(lane);
+            }
+        }
+    }
+
+    // Callers hold the lane lock
+    private void removeIfIdle(Lane lane) {
+        if(lane.released && !lane.scheduled && lane.inFlight == 0 && lane.tasks.isEmpty()) {
+            lane.removed = true;
+            lanes.remove(lane.id, lane);
+        }
+    }
+
+    private static class Lane {
+        final String id;
+        final Queue<LaneEntry> tasks = new ArrayDeque<>();
+        volatile int priority = PRIORITY_DEFAULT;
+        boolean scheduled;
+        int inFlight;
+        boolean waiting;
+        boolean released;
+        boolean removed;
+
+        Lane(String id) {
+            this.id = id;
+        }
+    }
+
+    private static class LaneEntry {
+        final Runnable task;
+        final boolean concurrent;
+        final boolean loading;
+
+        LaneEntry(Runnable task, boolean concurrent, boolean loading) {
+            this.task = task;
+            this.concurrent = concurrent;
+            this.loading = loading;
+        }
+    }
+
+    private class LaneTask implements Runnable, Comparable<LaneTask> {
+        private final Lane lane;
+        private final Runnable detached;
+        private final int priority;
+        private final long sequence;
+
+        LaneTask(Lane lane, int priority, long sequence) {
+            this.lane = lane;
+            this.detached = null;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        LaneTask(Runnable detached, int priority, long sequence) {
+            this.lane = null;
+            this.detached = detached;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if(detached != null) {
+                detached.run();
+                return;
+            }
+
+            final LaneEntry entry;
+            synchronized (lane) {
+                LaneEntry next = lane.tasks.peek();
+                if(next != null && !next.concurrent && lane.inFlight > 0) {
+                    // The lane stays taken, the last concurrent task to finish schedules it again
+                    lane.waiting = true;
+                    return;
+                }
+                entry = lane.tasks.poll();
+                if(entry != null && entry.concurrent) {
+                    lane.inFlight++;
+                }
+            }
+
+            if(entry != null && entry.loading) {
+                // The lane stays taken until the load finished, the loader resumes it
+                loader.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            entry.task.run();
+                        } finally {
+                            resume(lane);
+                        }
+                    }
+                });
+                return;
+            }
+
+            try {
+                if(entry != null && entry.concurrent) {
+                    pool.execute(new LaneTask(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                entry.task.run();
+                            } finally {
+                                finishConcurrent(lane);
+                            }
+                        }
+                    }, priority, sequence));
+                } else if(entry != null) {
+                    entry.task.run();
+                }
+            } finally {
+                resume(lane);
+            }
+        }
+
+        @Override
+        public int compareTo(LaneTask other) {
+            if(priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private static class InferenceThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        InferenceThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.rntensorflow;
+
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+/**
+ * Emits the progress of loading a model as RNTensorFlow.loadProgress events.
+ *
+ * Stages are "downloading" while a model is fetched from a url into the cache, "loading" while the model bytes are
+ * read, "imported" once the graph is imported and its session created and "warmedUp" after an optional warm-up.
+ * Download and loading events are emitted at most once per MB.
+ */
+public class LoadProgress implements ResourceManager.ProgressListener {
+
+    public static final String EVENT = "RNTensorFlow.loadProgress";
+
+    private static final long MIN_BYTES_BETWEEN_EVENTS = 1024 * 1024;
+
+    private final ReactContext reactContext;
+    private final String id;
+    private long lastDownloadedBytes = -1;
+    private long lastLoadedBytes = -1;
+
+    public LoadProgress(ReactContext reactContext, String id) {
+        this.reactContext = reactContext;
+        this.id = id;
+    }
+
+    @Override
+    public void onDownloadProgress(long bytesDownloaded, long totalBytes) {
+        if(shouldReport(bytesDownloaded, lastDownloadedBytes, totalBytes)) {
+            lastDownloadedBytes = bytesDownloaded;
+            emitBytes("downloading", bytesDownloaded, totalBytes);
+        }
+    }
+
+    @Override
+    public void onProgress(long bytesLoaded, long totalBytes) {
+        if(shouldReport(bytesLoaded, lastLoadedBytes, totalBytes)) {
+            lastLoadedBytes = bytesLoaded;
+            emitBytes("loading", bytesLoaded, totalBytes);
+        }
+    }
+
+    public void imported() {
+        emit(event("imported"));
+    }
+
+    public void warmedUp() {
+        emit(event("warmedUp"));
+    }
+
+    private static boolean shouldReport(long bytes, long lastReportedBytes, long totalBytes) {
+        return lastReportedBytes < 0 || bytes - lastReportedBytes >= MIN_BYTES_BETWEEN_EVENTS || bytes == totalBytes;
+    }
+
+    private void emitBytes(String stage, long bytes, long totalBytes) {
+        WritableMap progress = event(stage);
+        progress.putDouble("bytesLoaded", bytes);
+        progress.putDouble("totalBytes", totalBytes);
+        emit(progress);
+    }
+
+    private WritableMap event(String stage) {
+        WritableMap event = new WritableNativeMap();
+        event.putString("id", id);
+        event.putString("stage", stage);
+        return event;
+    }
+
+    private void emit(WritableMap event) {
+        if(reactContext.hasActiveCatalystInstance()) {
+            reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(EVENT, event);
+        }
+    }
+}
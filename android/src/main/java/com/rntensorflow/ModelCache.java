@@ -0,0 +1,324 @@
+package com.rntensorflow;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Disk cache for resources fetched from a url, so models are only downloaded again when they changed.
+ *
+ * Downloads are streamed to disk while their SHA-256 is computed. A cached entry is revalidated with
+ * If-None-Match / If-Modified-Since. Its hash is only checked again if its size or modification time changed since it
+ * was stored. When the server can not be reached or a download fails a valid cached entry is used as is. The least
+ * recently used entries are removed once the cache grows beyond its size limit, the access time of an entry is kept
+ * on its meta file so the data file keeps the modification time it was stored with.
+ */
+public class ModelCache {
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final String DATA_SUFFIX = ".data";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int LOCK_STRIPES = 32;
+
+    // Loads and evictions of the same entry are serialized on one of a fixed number of locks, so the locks do not
+    // grow with the number of urls ever cached
+    private static final Object[] LOCKS = new Object[LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private final File directory;
+    private final OkHttpClient client;
+    private final long maxBytes;
+
+    public ModelCache(File directory, OkHttpClient client, long maxBytes) {
+        this.directory = directory;
+        this.client = client;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a local file holding the current content of the url, downloading it only if needed.
+     */
+    public File get(String url) throws IOException {
+        return get(url, null);
+    }
+
+    /**
+     * Like {@link #get(String)}, reporting the progress of a download to the listener.
+     */
+    public File get(String url, ResourceManager.ProgressListener progressListener) throws IOException {
+        String key = hex(sha256(url.getBytes("UTF-8")));
+        File data = load(url, key, progressListener);
+        evict(data);
+        return data;
+    }
+
+    private File load(String url, String key, ResourceManager.ProgressListener progressListener) throws IOException {
+        synchronized (lockFor(key)) {
+            if(!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create cache directory " + directory);
+            }
+
+            File data = new File(directory, key + DATA_SUFFIX);
+            File meta = new File(directory, key + META_SUFFIX);
+            Properties properties = data.isFile() ? readProperties(meta) : null;
+            if(properties != null && !isValid(data, meta, properties)) {
+                delete(data, meta);
+                properties = null;
+            }
+
+            Request.Builder request = new Request.Builder().url(url).get();
+            if(properties != null && properties.getProperty("etag") != null) {
+                request.header("If-None-Match", properties.getProperty("etag"));
+            }
+            if(properties != null && properties.getProperty("lastModified") != null) {
+                request.header("If-Modified-Since", properties.getProperty("lastModified"));
+            }
+
+            Response response;
+            try {
+                response = client.newCall(request.build()).execute();
+            } catch (IOException e) {
+                if(properties != null) {
+                    return touch(data, meta);
+                }
+                throw e;
+            }
+
+            try {
+                if(response.code() == 304 && properties != null) {
+                    return touch(data, meta);
+                }
+                if(!response.isSuccessful()) {
+                    if(properties != null) {
+                        return touch(data, meta);
+                    }
+                    throw new IOException("Unexpected response " + response.code() + " for " + url);
+                }
+
+                String hash;
+                try {
+                    hash = download(response.body().byteStream(), response.body().contentLength(), data, progressListener);
+                } catch (IOException e) {
+                    // The cached entry is only replaced once the download completed
+                    if(properties != null && data.isFile()) {
+                        return touch(data, meta);
+                    }
+                    throw e;
+                }
+                properties = new Properties();
+                properties.setProperty("url", url);
+                properties.setProperty("sha256", hash);
+                properties.setProperty("size", String.valueOf(data.length()));
+                properties.setProperty("modified", String.valueOf(data.lastModified()));
+                if(response.header("ETag") != null) {
+                    properties.setProperty("etag", response.header("ETag"));
+                }
+                if(response.header("Last-Modified") != null) {
+                    properties.setProperty("lastModified", response.header("Last-Modified"));
+                }
+                writeProperties(meta, properties);
+            } finally {
+                response.close();
+            }
+            return data;
+        }
+    }
+
+    private String download(InputStream body, long contentLength, File data,
+                            ResourceManager.ProgressListener progressListener) throws IOException {
+        File temp = new File(directory, data.getName() + TEMP_SUFFIX);
+        try {
+            DigestInputStream inputStream = new DigestInputStream(body, newDigest());
+            OutputStream outputStream = new FileOutputStream(temp);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long downloaded = 0;
+                int read;
+                while ((read = inputStream.read(buffer)) >= 0) {
+                    outputStream.write(buffer, 0, read);
+                    downloaded += read;
+                    if(progressListener != null) {
+                        progressListener.onDownloadProgress(downloaded, contentLength);
+                    }
+                }
+            } finally {
+                outputStream.close();
+                inputStream.close();
+            }
+
+            if(data.exists() && !data.delete() || !temp.renameTo(data)) {
+                throw new IOException("Could not store " + data);
+            }
+            return hex(inputStream.getMessageDigest().digest());
+        } finally {
+            if(temp.exists()) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Checks the entry against its meta data. The file is only hashed again if its modification time changed since it
+     * was stored, a matching hash is then recorded with the new modification time.
+     */
+    private boolean isValid(File data, File meta, Properties properties) throws IOException {
+        if(!String.valueOf(data.length()).equals(properties.getProperty("size"))) {
+            return false;
+        }
+        String modified = String.valueOf(data.lastModified());
+        if(modified.equals(properties.getProperty("modified"))) {
+            return true;
+        }
+
+        MessageDigest digest = newDigest();
+        FileInputStream inputStream = new FileInputStream(data);
+        try {
+            MappedByteBuffer buffer = inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, data.length());
+            digest.update(buffer);
+        } finally {
+            inputStream.close();
+        }
+        if(!hex(digest.digest()).equals(properties.getProperty("sha256"))) {
+            return false;
+        }
+        properties.setProperty("modified", modified);
+        writeProperties(meta, properties);
+        return true;
+    }
+
+    private void evict(File keep) {
+        File[] files = directory.listFiles();
+        if(files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            if(file.getName().endsWith(DATA_SUFFIX)) {
+                total += file.length();
+            }
+        }
+
+        // Entries are touched concurrently, so sort on a snapshot of their access times
+        final Map<File, Long> lastAccess = new HashMap<>();
+        for (File file : files) {
+            lastAccess.put(file, file.getName().endsWith(DATA_SUFFIX) ? metaFile(file).lastModified() : file.lastModified());
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long diff = lastAccess.get(first) - lastAccess.get(second);
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+
+        for (File file : files) {
+            if(total <= maxBytes) {
+                break;
+            }
+            if(!file.getName().endsWith(DATA_SUFFIX) || file.equals(keep)) {
+                continue;
+            }
+
+            String key = file.getName().substring(0, file.getName().length() - DATA_SUFFIX.length());
+            synchronized (lockFor(key)) {
+                total -= file.length();
+                delete(file, metaFile(file));
+            }
+        }
+    }
+
+    private static File touch(File data, File meta) {
+        meta.setLastModified(System.currentTimeMillis());
+        return data;
+    }
+
+    private static File metaFile(File data) {
+        String name = data.getName();
+        return new File(data.getParentFile(), name.substring(0, name.length() - DATA_SUFFIX.length()) + META_SUFFIX);
+    }
+
+    private static void delete(File data, File meta) {
+        data.delete();
+        meta.delete();
+    }
+
+    private static Properties readProperties(File meta) {
+        if(!meta.isFile()) {
+            return null;
+        }
+
+        try {
+            InputStream inputStream = new FileInputStream(meta);
+            try {
+                Properties properties = new Properties();
+                properties.load(inputStream);
+                return properties;
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeProperties(File meta, Properties properties) throws IOException {
+        OutputStream outputStream = new FileOutputStream(meta);
+        try {
+            properties.store(outputStream, null);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static Object lockFor(String key) {
+        return LOCKS[(key.hashCode() & Integer.MAX_VALUE) % LOCKS.length];
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        return newDigest().digest(bytes);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,160 @@
+package com.rntensorflow;
+
+import com.facebook.react.bridge.ReactContext;
+import org.tensorflow.Graph;
+import org.tensorflow.Session;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares one loaded Graph and Session per model location between all inference instances.
+ *
+ * Handles are reference counted, the native graph and session are only closed when the last handle is released.
+ * Opening a model that is already loaded does not read or import it again. A graph that is changed after loading is
+ * taken out of the registry first, see {@link #detach(Graph)}.
+ */
+public class ModelRegistry {
+
+    private static final ModelRegistry INSTANCE = new ModelRegistry();
+
+    private final Map<String, SharedModel> models = new HashMap<>();
+
+    public static ModelRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public SharedModel acquire(ReactContext reactContext, String model) {
+        return acquire(reactContext, model, null);
+    }
+
+    /**
+     * Like {@link #acquire(ReactContext, String)}, reporting the bytes loaded to the listener if the model has to be
+     * loaded.
+     */
+    public SharedModel acquire(ReactContext reactContext, String model, ResourceManager.ProgressListener progressListener) {
+        SharedModel sharedModel;
+        synchronized (models) {
+            sharedModel = models.get(model);
+            if(sharedModel == null) {
+                sharedModel = new SharedModel(model);
+                models.put(model, sharedModel);
+            }
+            sharedModel.refCount++;
+        }
+
+        try {
+            sharedModel.load(reactContext, progressListener);
+            return sharedModel;
+        } catch (RuntimeException e) {
+            release(sharedModel);
+            throw e;
+        }
+    }
+
+    public void release(SharedModel sharedModel) {
+        synchronized (models) {
+            sharedModel.refCount--;
+            if(sharedModel.refCount > 0) {
+                return;
+            }
+            if(models.get(sharedModel.location) == sharedModel) {
+                models.remove(sharedModel.location);
+            }
+        }
+        sharedModel.close();
+    }
+
+    /**
+     * Takes the model of the graph out of the registry before the graph is changed, so instances created later load the
+     * model again instead of sharing the changed graph. Fails if other instances still use the graph, as they would see
+     * the change too.
+     */
+    public void detach(Graph graph) {
+        synchronized (models) {
+            Iterator<SharedModel> iterator = models.values().iterator();
+            while (iterator.hasNext()) {
+                SharedModel sharedModel = iterator.next();
+                if(sharedModel.getGraph() != graph) {
+                    continue;
+                }
+                if(sharedModel.refCount > 1) {
+                    throw new IllegalStateException("The graph of model " + sharedModel.location + " is shared by "
+                            + sharedModel.refCount + " instances and can not be changed");
+                }
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    public int getRefCount(String model) {
+        synchronized (models) {
+            SharedModel sharedModel = models.get(model);
+            return sharedModel != null ? sharedModel.refCount : 0;
+        }
+    }
+
+    public static class SharedModel {
+        private final String location;
+        private int refCount;
+        private Graph graph;
+        private Session session;
+        private List<GraphDescription.Node> nodes;
+
+        SharedModel(String location) {
+            this.location = location;
+        }
+
+        private synchronized void load(ReactContext reactContext, ResourceManager.ProgressListener progressListener) {
+            if(graph != null) {
+                return;
+            }
+
+            byte[] b = new ResourceManager(reactContext).setProgressListener(progressListener).loadCachedResource(location);
+            Graph loadedGraph = new Graph();
+            try {
+                loadedGraph.importGraphDef(b);
+                // Read while the bytes are at hand, so describing the graph later does not serialize it again
+                nodes = GraphDescription.parseGraphDef(b, "");
+                session = new Session(loadedGraph);
+                graph = loadedGraph;
+            } catch (RuntimeException e) {
+                loadedGraph.close();
+                throw e;
+            }
+        }
+
+        private synchronized void close() {
+            if(session != null) {
+                session.close();
+                session = null;
+            }
+            if(graph != null) {
+                graph.close();
+                graph = null;
+            }
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public synchronized Graph getGraph() {
+            return graph;
+        }
+
+        public synchronized Session getSession() {
+            return session;
+        }
+
+        /**
+         * Returns the nodes of the GraphDef the graph was loaded from.
+         */
+        synchronized List<GraphDescription.Node> getNodes() {
+            return nodes;
+        }
+    }
+}
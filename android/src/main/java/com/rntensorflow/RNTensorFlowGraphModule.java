@@ -8,17 +8,27 @@ import com.facebook.react.bridge.ReactMethod;
 import org.tensorflow.Graph;
 import org.tensorflow.Operation;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RNTensorFlowGraphModule extends ReactContextBaseJavaModule {
 
     private ReactApplicationContext reactContext;
-    private Map<String, Graph> graphs = new HashMap<>();
+    private final InferenceExecutor executor;
+    private Map<String, Graph> graphs = new ConcurrentHashMap<>();
+    // Keyed by graph, as the ids of all inferences of a model share one graph through the ModelRegistry
+    private Map<Graph, GraphDescription> descriptions = Collections.synchronizedMap(new WeakHashMap<Graph, GraphDescription>());
+    // The GraphDef nodes of every graph, extended by imports, so describing a graph never serializes it
+    private Map<Graph, List<GraphDescription.Node>> nodes = Collections.synchronizedMap(new WeakHashMap<Graph, List<GraphDescription.Node>>());
 
-    public RNTensorFlowGraphModule(ReactApplicationContext reactContext) {
+    public RNTensorFlowGraphModule(ReactApplicationContext reactContext, InferenceExecutor executor) {
         super(reactContext);
         this.reactContext = reactContext;
+        this.executor = executor;
     }
 
     @Override
@@ -28,15 +38,27 @@ public class RNTensorFlowGraphModule extends ReactContextBaseJavaModule {
 
     @Override
     public void onCatalystInstanceDestroy() {
-        for (String key : graphs.keySet()) {
-            graphs.get(key).close();
-        }
+        graphs.clear();
+        descriptions.clear();
+        nodes.clear();
     }
 
-    public void init(String id, Graph graph) {
+    public void init(String id, Graph graph, List<GraphDescription.Node> graphNodes) {
+        synchronized (graph) {
+            if(!nodes.containsKey(graph)) {
+                nodes.put(graph, graphNodes);
+            }
+        }
         graphs.put(id, graph);
     }
 
+    /**
+     * Forgets the graph of the id, called when its inference is closed and the graph may be released with it.
+     */
+    public void remove(String id) {
+        graphs.remove(id);
+    }
+
     public Operation getOperation(String id, String name) {
         Graph graph = graphs.get(id);
         if(graph != null && name != null) {
@@ -51,11 +73,27 @@ public class RNTensorFlowGraphModule extends ReactContextBaseJavaModule {
         importGraphDefWithPrefix(id, graphDef, "", promise);
     }
 
+    /**
+     * Imports the graph def into the graph of the id. Fails if the graph is shared with other instances of the same
+     * model, otherwise the graph stops being shared, see {@link ModelRegistry#detach(Graph)}.
+     */
     @ReactMethod
     public void importGraphDefWithPrefix(String id, String graphDef, String prefix, Promise promise) {
         try {
             Graph graph = graphs.get(id);
-            graph.importGraphDef(Base64.decode(graphDef, Base64.DEFAULT), prefix);
+            if(graph == null) {
+                throw new IllegalStateException("Could not find graph for id " + id);
+            }
+            synchronized (graph) {
+                ModelRegistry.getInstance().detach(graph);
+                byte[] bytes = Base64.decode(graphDef, Base64.DEFAULT);
+                graph.importGraphDef(bytes, prefix);
+
+                List<GraphDescription.Node> graphNodes = new ArrayList<>(nodes.get(graph));
+                graphNodes.addAll(GraphDescription.parseGraphDef(bytes, prefix));
+                nodes.put(graph, graphNodes);
+                descriptions.remove(graph);
+            }
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject(e);
@@ -72,11 +110,49 @@ public class RNTensorFlowGraphModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * Resolves the metadata of all operations of the graph in one payload, see {@link GraphDescription#toWritableMap()}.
+     * The graph is only walked on the first call and again after a graph def was imported. Runs on the lane of the id,
+     * as resolving the outputs of a large graph takes a while.
+     */
+    @ReactMethod
+    public void describeGraph(final String id, final Promise promise) {
+        if(!graphs.containsKey(id)) {
+            // Checked up front, a closed id would otherwise get a lane that is never released
+            promise.reject(new IllegalStateException("Could not find graph for id " + id));
+            return;
+        }
+        executor.execute(id, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Graph graph = graphs.get(id);
+                    if(graph == null) {
+                        throw new IllegalStateException("Could not find graph for id " + id);
+                    }
+
+                    GraphDescription description;
+                    // An import through another id of the same graph is rejected, see importGraphDefWithPrefix
+                    synchronized (graph) {
+                        description = descriptions.get(graph);
+                        if(description == null) {
+                            description = GraphDescription.describe(graph, nodes.get(graph));
+                            descriptions.put(graph, description);
+                        }
+                    }
+                    promise.resolve(description.toWritableMap());
+                } catch (Exception e) {
+                    promise.reject(e);
+                }
+            }
+        });
+    }
+
     @ReactMethod
     public void close(String id, Promise promise) {
         try {
-            Graph graph = graphs.get(id);
-            graph.close();
+            // The graph is shared through the ModelRegistry and closed once its last inference is closed
+            remove(id);
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject(e);
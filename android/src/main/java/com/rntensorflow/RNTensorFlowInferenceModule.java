@@ -2,6 +2,13 @@
 package com.rntensorflow;
 
 import com.facebook.react.bridge.*;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.rntensorflow.converter.BinaryConverter;
+import com.rntensorflow.metrics.InferenceMetrics;
+import com.rntensorflow.metrics.MetricsRegistry;
+import com.rntensorflow.converter.StringTensorEncoder;
+import com.rntensorflow.postprocessing.Reduction;
+import com.rntensorflow.tokenizer.Tokenizer;
 import org.tensorflow.DataType;
 import org.tensorflow.Graph;
 import org.tensorflow.Session;
@@ -14,20 +21,31 @@ import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.rntensorflow.converter.ArrayConverter.*;
 
 public class RNTensorFlowInferenceModule extends ReactContextBaseJavaModule {
 
+  private static final String METRICS_EVENT = "RNTensorFlow.metrics";
+
   private final ReactApplicationContext reactContext;
-  private Map<String, RNTensorflowInference> inferenceMap = new HashMap<>();
+  private final InferenceExecutor executor;
+  private final MetricsRegistry metrics;
+  private Map<String, RNTensorflowInference> inferenceMap = new ConcurrentHashMap<>();
+  private final TensorHandles tensorHandles = new TensorHandles();
 
-  public RNTensorFlowInferenceModule(ReactApplicationContext reactContext) {
+  public RNTensorFlowInferenceModule(ReactApplicationContext reactContext, InferenceExecutor executor,
+                                     MetricsRegistry metrics) {
     super(reactContext);
     this.reactContext = reactContext;
+    this.executor = executor;
+    this.metrics = metrics;
   }
 
   @Override
@@ -42,96 +60,610 @@ public class RNTensorFlowInferenceModule extends ReactContextBaseJavaModule {
       if(inference != null) {
         inference.close();
       }
+      executor.release(id);
+      metrics.remove(id);
     }
+    tensorHandles.releaseAll();
+    metrics.shutdown();
   }
 
   @ReactMethod
-  public void initTensorFlowInference(String id, String model, Promise promise) {
-    try {
-      RNTensorflowInference inference = RNTensorflowInference.init(reactContext, model);
-      inferenceMap.put(id, inference);
+  public void setPriority(String id, int priority) {
+    executor.setPriority(id, priority);
+  }
+
+  /**
+   * Loads the model on the loader pool, reporting progress as {@link LoadProgress} events. Calls for the id made in
+   * the meantime are queued until the model is loaded. Initializing an id again closes its previous model.
+   */
+  @ReactMethod
+  public void initTensorFlowInference(final String id, final String model, final Promise promise) {
+    metrics.register(id);
+    executor.executeLoading(id, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          LoadProgress progress = new LoadProgress(reactContext, id);
+          RNTensorflowInference inference = RNTensorflowInference.init(reactContext, model, progress);
+          RNTensorflowInference previous = inferenceMap.put(id, inference);
+
+          RNTensorFlowGraphModule graphModule = reactContext.getNativeModule(RNTensorFlowGraphModule.class);
+          graphModule.init(id, inference.getTfContext().graph, inference.getGraphNodes());
+          if(previous != null) {
+            previous.close();
+          }
+
+          progress.imported();
+          promise.resolve(true);
+        } catch (Exception e) {
+          if(!inferenceMap.containsKey(id)) {
+            metrics.remove(id);
+          }
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Loads the vocab file of the options on the loader pool, see {@link Tokenizer#load}. Inputs fed with text are
+   * encoded with it from then on.
+   */
+  @ReactMethod
+  public void loadTokenizer(final String id, final ReadableMap options, final Promise promise) {
+    executor.executeLoading(id, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          RNTensorflowInference inference = getInference(id);
+          Tokenizer tokenizer = Tokenizer.load(new ResourceManager(reactContext), options);
+          inference.setTokenizer(tokenizer);
+          promise.resolve(tokenizer.getVocabSize());
+        } catch (Exception e) {
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs zero filled inputs through the model, see {@link RNTensorflowInference#warmUp}. The spec holds the inputs
+   * ({name, shape, dtype}), the outputNames to run and the number of runs.
+   */
+  @ReactMethod
+  public void warmUp(final String id, final ReadableMap spec, final Promise promise) {
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          RNTensorflowInference inference = getInference(id);
+          ReadableArray inputs = spec.getArray("inputs");
+          String[] inputNames = new String[inputs.size()];
+          DataType[] dtypes = new DataType[inputs.size()];
+          long[][] shapes = new long[inputs.size()][];
+          for (int i = 0; i < inputs.size(); i++) {
+            ReadableMap input = inputs.getMap(i);
+            inputNames[i] = input.getString("name");
+            dtypes[i] = input.hasKey("dtype") ? DataType.valueOf(input.getString("dtype").toUpperCase()) : DataType.DOUBLE;
+            shapes[i] = readableArrayToLongArray(input.getArray("shape"));
+          }
+          int runs = spec.hasKey("runs") ? spec.getInt("runs") : 1;
+
+          WritableMap stats = inference.warmUp(inputNames, dtypes, shapes,
+                  readableArrayToStringArray(spec.getArray("outputNames")), runs);
+          new LoadProgress(reactContext, id).warmedUp();
+          promise.resolve(stats);
+        } catch (Exception e) {
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void feed(final String id, final ReadableMap data, final Promise promise) {
+    final long queuedAt = System.nanoTime();
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        InferenceMetrics idMetrics = metrics.get(id);
+        long start = idMetrics.record("queueWait", queuedAt);
+        try {
+          RNTensorflowInference inference = getInference(id);
+          if(data.hasKey("handle")) {
+            inference.feed(data.getString("name"), tensorHandles.borrow(data.getString("handle")));
+          } else {
+            inference.feed(data.getString("name"), createTensor(inference, data, idMetrics));
+          }
+          idMetrics.record("feed", start);
+          promise.resolve(true);
+        } catch (Exception e) {
+          idMetrics.recordError("feed");
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void run(final String id, final ReadableArray outputNames, final boolean enableStats, final Promise promise) {
+    final long queuedAt = System.nanoTime();
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        InferenceMetrics idMetrics = metrics.get(id);
+        long start = idMetrics.record("queueWait", queuedAt);
+        try {
+          RNTensorflowInference inference = getInference(id);
+          inference.run(readableArrayToStringArray(outputNames), enableStats);
+          idMetrics.record("run", start);
+          promise.resolve(true);
+        } catch (Exception e) {
+          idMetrics.recordError("run");
+          promise.reject(e);
+        }
+      }
+    });
+  }
 
-      RNTensorFlowGraphModule graphModule = reactContext.getNativeModule(RNTensorFlowGraphModule.class);
-      graphModule.init(id, inference.getTfContext().graph);
+  @ReactMethod
+  public void fetch(final String id, final String outputName, final Promise promise) {
+    final long queuedAt = System.nanoTime();
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        InferenceMetrics idMetrics = metrics.get(id);
+        long start = idMetrics.record("queueWait", queuedAt);
+        try {
+          RNTensorflowInference inference = getInference(id);
+          ReadableArray output = inference.fetch(outputName);
+          idMetrics.record("fetch.convert", start);
+          promise.resolve(output);
+        } catch (Exception e) {
+          idMetrics.recordError("fetch");
+          promise.reject(e);
+        }
+      }
+    });
+  }
 
+  @ReactMethod
+  public void fetchReduced(final String id, final String outputName, final ReadableMap reduction, final Promise promise) {
+    final long queuedAt = System.nanoTime();
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        InferenceMetrics idMetrics = metrics.get(id);
+        long start = idMetrics.record("queueWait", queuedAt);
+        try {
+          RNTensorflowInference inference = getInference(id);
+          WritableMap output = inference.fetchReduced(outputName, Reduction.fromReadableMap(reduction));
+          idMetrics.record("fetch.reduce", start);
+          promise.resolve(output);
+        } catch (Exception e) {
+          idMetrics.recordError("fetch");
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void fetchBinary(final String id, final String outputName, final Promise promise) {
+    final long queuedAt = System.nanoTime();
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        InferenceMetrics idMetrics = metrics.get(id);
+        long start = idMetrics.record("queueWait", queuedAt);
+        try {
+          RNTensorflowInference inference = getInference(id);
+          WritableMap output = inference.fetchBinary(outputName);
+          idMetrics.record("fetch.encode", start);
+          promise.resolve(output);
+        } catch (Exception e) {
+          idMetrics.recordError("fetch");
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void runOnce(final String id, final ReadableArray inputs, final ReadableArray outputNames, final Promise promise) {
+    final long queuedAt = System.nanoTime();
+    executor.executeConcurrently(id, new Runnable() {
+      @Override
+      public void run() {
+        InferenceMetrics idMetrics = metrics.get(id);
+        long start = idMetrics.record("queueWait", queuedAt);
+        List<TensorHandles.Borrow> borrows = new ArrayList<>();
+        try {
+          RNTensorflowInference inference = getInference(id);
+
+          Map<String, Tensor> inputTensors = new LinkedHashMap<>();
+          List<Tensor> handleTensors = new ArrayList<>();
+          try {
+            for (int i = 0; i < inputs.size(); i++) {
+              ReadableMap input = inputs.getMap(i);
+              Tensor tensor;
+              if(input.hasKey("handle")) {
+                tensor = borrowHandle(input, borrows);
+                handleTensors.add(tensor);
+              } else {
+                tensor = createTensor(inference, input, idMetrics);
+              }
+              inputTensors.put(input.getString("name"), tensor);
+            }
+          } catch (RuntimeException e) {
+            for (Tensor tensor : inputTensors.values()) {
+              if(!handleTensors.contains(tensor)) {
+                tensor.close();
+              }
+            }
+            throw e;
+          }
+
+          WritableMap outputs = inference.runOnce(inputTensors, handleTensors, readableArrayToStringArray(outputNames));
+          idMetrics.record("runOnce", start);
+          promise.resolve(outputs);
+        } catch (Exception e) {
+          idMetrics.recordError("runOnce");
+          promise.reject(e);
+        } finally {
+          giveBack(borrows);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void fetchHandle(final String id, final String outputName, final Promise promise) {
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          RNTensorflowInference inference = getInference(id);
+          promise.resolve(tensorHandles.put(inference.detach(outputName)));
+        } catch (Exception e) {
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Releases the handle. Its tensor stays open until the feeds and pipelines that still use it are done.
+   */
+  @ReactMethod
+  public void releaseHandle(String handle, Promise promise) {
+    try {
+      tensorHandles.release(handle);
       promise.resolve(true);
     } catch (Exception e) {
       promise.reject(e);
     }
   }
 
+  /**
+   * Runs several models after each other entirely on the native side. Every stage names its model id, inputs and
+   * output names; an input can take the output of an earlier stage with from: {stage, output}. Intermediate tensors
+   * never cross the bridge. The outputs of the last stage are returned as arrays, or as handles with keepHandles.
+   */
   @ReactMethod
-  public void feed(String id, ReadableMap data, Promise promise) {
-    try {
-      RNTensorflowInference inference = inferenceMap.get(id);
-
-      String inputName = data.getString("name");
-      long[] shape = data.hasKey("shape") ? readableArrayToLongArray(data.getArray("shape")) : new long[0];
-
-      DataType dtype = data.hasKey("dtype")
-              ? DataType.valueOf(data.getString("dtype").toUpperCase())
-              : DataType.DOUBLE;
-
-      if(dtype == DataType.DOUBLE) {
-        double[] srcData = readableArrayToDoubleArray(data.getArray("data"));
-        inference.feed(inputName, Tensor.create(shape, DoubleBuffer.wrap(srcData)));
-      } else if(dtype == DataType.FLOAT) {
-        float[] srcData = readableArrayToFloatArray(data.getArray("data"));
-        inference.feed(inputName, Tensor.create(shape, FloatBuffer.wrap(srcData)));
-      } else if(dtype == DataType.INT32) {
-        int[] srcData = readableArrayToIntArray(data.getArray("data"));
-        inference.feed(inputName, Tensor.create(shape, IntBuffer.wrap(srcData)));
-      } else if(dtype == DataType.INT64) {
-        double[] srcData = readableArrayToDoubleArray(data.getArray("data"));
-        inference.feed(inputName, Tensor.create(shape, DoubleBuffer.wrap(srcData)));
-      } else if(dtype == DataType.UINT8) {
-        int[] srcData = readableArrayToIntArray(data.getArray("data"));
-        inference.feed(inputName, Tensor.create(shape, IntBuffer.wrap(srcData)));
-      } else if(dtype == DataType.BOOL) {
-        byte[] srcData = readableArrayToByteBoolArray(data.getArray("data"));
-        inference.feed(inputName, Tensor.create(dtype, shape, ByteBuffer.wrap(srcData)));
-      } else if(dtype == DataType.STRING) {
-        byte[] srcData = readableArrayToByteStringArray(data.getArray("data"));
-        inference.feed(inputName, Tensor.create(dtype, shape, ByteBuffer.wrap(srcData)));
-      } else {
-        promise.reject(new IllegalArgumentException("Data type is not supported"));
-        return;
+  public void runPipeline(final ReadableArray stages, final Promise promise) {
+    if(stages.size() == 0) {
+      promise.reject(new IllegalArgumentException("Pipeline has no stages"));
+      return;
+    }
+
+    executor.executeConcurrently(stages.getMap(0).getString("id"), new Runnable() {
+      @Override
+      public void run() {
+        List<Tensor> ownedTensors = new ArrayList<>();
+        List<TensorHandles.Borrow> borrows = new ArrayList<>();
+        // The stages after the first run outside their own lanes, so each model is kept open until the pipeline ends
+        List<RNTensorflowInference> usedInferences = new ArrayList<>();
+        try {
+          RNTensorflowInference[] stageInferences = new RNTensorflowInference[stages.size()];
+          for (int i = 0; i < stages.size(); i++) {
+            RNTensorflowInference inference = getInference(stages.getMap(i).getString("id"));
+            if(!usedInferences.contains(inference)) {
+              if(!inference.beginUse()) {
+                throw new IllegalStateException("Inference for id " + stages.getMap(i).getString("id") + " was closed");
+              }
+              usedInferences.add(inference);
+            }
+            stageInferences[i] = inference;
+          }
+
+          List<Map<String, Tensor>> stageOutputs = new ArrayList<>();
+          for (int i = 0; i < stages.size(); i++) {
+            ReadableMap stage = stages.getMap(i);
+            RNTensorflowInference inference = stageInferences[i];
+
+            Map<String, Tensor> inputTensors = new LinkedHashMap<>();
+            ReadableArray inputs = stage.getArray("inputs");
+            for (int j = 0; j < inputs.size(); j++) {
+              ReadableMap input = inputs.getMap(j);
+              if(input.hasKey("from")) {
+                ReadableMap from = input.getMap("from");
+                int fromStage = from.getInt("stage");
+                Tensor tensor = fromStage >= 0 && fromStage < i ? stageOutputs.get(fromStage).get(from.getString("output")) : null;
+                if(tensor == null) {
+                  throw new IllegalArgumentException("Stage " + i + " refers to unknown output " + from.getString("output")
+                          + " of stage " + fromStage);
+                }
+                inputTensors.put(input.getString("name"), tensor);
+              } else if(input.hasKey("handle")) {
+                inputTensors.put(input.getString("name"), borrowHandle(input, borrows));
+              } else {
+                Tensor tensor = createTensor(inference, input, metrics.get(stage.getString("id")));
+                ownedTensors.add(tensor);
+                inputTensors.put(input.getString("name"), tensor);
+              }
+            }
+
+            Map<String, Tensor> outputs = inference.runTensors(inputTensors, readableArrayToStringArray(stage.getArray("outputNames")));
+            ownedTensors.addAll(outputs.values());
+            stageOutputs.add(outputs);
+          }
+
+          ReadableMap lastStage = stages.getMap(stages.size() - 1);
+          boolean keepHandles = lastStage.hasKey("keepHandles") && lastStage.getBoolean("keepHandles");
+          WritableMap result = new WritableNativeMap();
+          for (Map.Entry<String, Tensor> output : stageOutputs.get(stageOutputs.size() - 1).entrySet()) {
+            if(keepHandles) {
+              ownedTensors.remove(output.getValue());
+              result.putString(output.getKey(), tensorHandles.put(output.getValue()));
+            } else {
+              result.putArray(output.getKey(), (WritableArray) RNTensorflowInference.tensorToReadableArray(output.getValue()));
+            }
+          }
+          promise.resolve(result);
+        } catch (Exception e) {
+          promise.reject(e);
+        } finally {
+          for (Tensor tensor : ownedTensors) {
+            tensor.close();
+          }
+          giveBack(borrows);
+          for (RNTensorflowInference inference : usedInferences) {
+            inference.endUse();
+          }
+        }
       }
-      promise.resolve(true);
+    });
+  }
+
+  @ReactMethod
+  public void getBufferArenaStats(String id, Promise promise) {
+    try {
+      RNTensorflowInference inference = getInference(id);
+      promise.resolve(inference.getBufferArena().getStats());
     } catch (Exception e) {
       promise.reject(e);
     }
   }
 
   @ReactMethod
-  public void run(String id, ReadableArray outputNames, boolean enableStats, Promise promise) {
+  public void getStatSummary(final String id, final int topN, final Promise promise) {
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          RNTensorflowInference inference = getInference(id);
+          promise.resolve(inference.getRunProfiler().getSummary(topN));
+        } catch (Exception e) {
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void getMetrics(String id, Promise promise) {
     try {
-      RNTensorflowInference inference = inferenceMap.get(id);
-      inference.run(readableArrayToStringArray(outputNames), enableStats);
-      promise.resolve(true);
+      promise.resolve(metrics.snapshot(id));
     } catch (Exception e) {
       promise.reject(e);
     }
   }
 
+  /**
+   * Emits a snapshot of the metrics of all model ids as RNTensorFlow.metrics event every intervalMs.
+   */
   @ReactMethod
-  public void fetch(String id, String outputName, Promise promise) {
+  public void startMetricsEvents(int intervalMs, Promise promise) {
     try {
-      RNTensorflowInference inference = inferenceMap.get(id);
-      promise.resolve(inference.fetch(outputName));
+      metrics.startReporting(intervalMs, new MetricsRegistry.Reporter() {
+        @Override
+        public void report(WritableMap snapshot) {
+          if(reactContext.hasActiveCatalystInstance()) {
+            reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(METRICS_EVENT, snapshot);
+          }
+        }
+      });
+      promise.resolve(true);
     } catch (Exception e) {
       promise.reject(e);
     }
   }
 
   @ReactMethod
-  public void close(String id, Promise promise) {
+  public void stopMetricsEvents() {
+    metrics.stopReporting();
+  }
+
+  @ReactMethod
+  public void getMemoryStats(String id, Promise promise) {
     try {
-      RNTensorflowInference inference = inferenceMap.get(id);
-      inference.close();
-      promise.resolve(true);
+      RNTensorflowInference inference = getInference(id);
+      promise.resolve(inference.getTensorMemory().getStats());
     } catch (Exception e) {
       promise.reject(e);
     }
   }
+
+  @ReactMethod
+  public void close(final String id, final Promise promise) {
+    executor.execute(id, new Runnable() {
+      @Override
+      public void run() {
+        try {
+          RNTensorflowInference inference = inferenceMap.remove(id);
+          if(inference != null) {
+            reactContext.getNativeModule(RNTensorFlowGraphModule.class).remove(id);
+            inference.close();
+          }
+          executor.release(id);
+          metrics.remove(id);
+          promise.resolve(true);
+        } catch (Exception e) {
+          promise.reject(e);
+        }
+      }
+    });
+  }
+
+  private RNTensorflowInference getInference(String id) {
+    RNTensorflowInference inference = inferenceMap.get(id);
+    if(inference == null) {
+      throw new IllegalStateException("No inference for id " + id + ", it is not loaded yet, failed to load or was closed");
+    }
+    return inference;
+  }
+
+  private Tensor borrowHandle(ReadableMap input, List<TensorHandles.Borrow> borrows) {
+    TensorHandles.Borrow borrow = tensorHandles.borrow(input.getString("handle"));
+    borrows.add(borrow);
+    return borrow.getTensor();
+  }
+
+  private void giveBack(List<TensorHandles.Borrow> borrows) {
+    for (TensorHandles.Borrow borrow : borrows) {
+      borrow.giveBack();
+    }
+  }
+
+  private Tensor createTensor(RNTensorflowInference inference, ReadableMap data, InferenceMetrics idMetrics) {
+    String inputName = data.getString("name");
+    long[] shape = data.hasKey("shape") ? readableArrayToLongArray(data.getArray("shape")) : new long[0];
+
+    DataType dtype = data.hasKey("dtype")
+            ? DataType.valueOf(data.getString("dtype").toUpperCase())
+            : (data.hasKey("text") ? DataType.INT32 : DataType.DOUBLE);
+
+    BufferArena arena = inference.getBufferArena();
+    long start = System.nanoTime();
+    if(data.hasKey("text")) {
+      return createTextTensor(inference, data, inputName, dtype, idMetrics);
+    } else if(data.hasKey("encoding")) {
+      String encoded = data.getString("data");
+      String encoding = data.getString("encoding");
+      ByteBuffer buffer = arena.acquire(inputName, dtype, shape, BinaryConverter.decodedLength(encoded, encoding));
+      try {
+        BinaryConverter.decode(encoded, encoding, buffer);
+        buffer.flip();
+        BinaryConverter.checkSize(dtype, shape, buffer);
+        long converted = idMetrics.record("feed.convert", start);
+        Tensor tensor = Tensor.create(dtype, shape, buffer);
+        idMetrics.record("feed.tensorCreate", converted);
+        return tensor;
+      } finally {
+        arena.release(inputName, dtype, shape, buffer);
+      }
+    } else if(dtype == DataType.DOUBLE || dtype == DataType.FLOAT || dtype == DataType.INT32) {
+      ReadableArray srcData = data.getArray("data");
+      ByteBuffer buffer = arena.acquire(inputName, dtype, shape, srcData.size() * BinaryConverter.elementSize(dtype));
+      try {
+        if(dtype == DataType.DOUBLE) {
+          readableArrayToDoubleBuffer(srcData, buffer);
+        } else if(dtype == DataType.FLOAT) {
+          readableArrayToFloatBuffer(srcData, buffer);
+        } else {
+          readableArrayToIntBuffer(srcData, buffer);
+        }
+        long converted = idMetrics.record("feed.convert", start);
+        Tensor tensor = Tensor.create(dtype, shape, buffer);
+        idMetrics.record("feed.tensorCreate", converted);
+        return tensor;
+      } finally {
+        arena.release(inputName, dtype, shape, buffer);
+      }
+    } else if(dtype == DataType.INT64) {
+      double[] srcData = readableArrayToDoubleArray(data.getArray("data"));
+      long converted = idMetrics.record("feed.convert", start);
+      Tensor tensor = Tensor.create(shape, DoubleBuffer.wrap(srcData));
+      idMetrics.record("feed.tensorCreate", converted);
+      return tensor;
+    } else if(dtype == DataType.UINT8) {
+      int[] srcData = readableArrayToIntArray(data.getArray("data"));
+      long converted = idMetrics.record("feed.convert", start);
+      Tensor tensor = Tensor.create(shape, IntBuffer.wrap(srcData));
+      idMetrics.record("feed.tensorCreate", converted);
+      return tensor;
+    } else if(dtype == DataType.BOOL) {
+      byte[] srcData = readableArrayToByteBoolArray(data.getArray("data"));
+      long converted = idMetrics.record("feed.convert", start);
+      Tensor tensor = Tensor.create(dtype, shape, ByteBuffer.wrap(srcData));
+      idMetrics.record("feed.tensorCreate", converted);
+      return tensor;
+    } else if(dtype == DataType.STRING) {
+      String[] srcData = readableArrayToStringArray(data.getArray("data"));
+      ByteBuffer buffer = arena.acquire(inputName, dtype, shape, StringTensorEncoder.encodedSize(srcData));
+      try {
+        StringTensorEncoder.encode(srcData, buffer);
+        buffer.flip();
+        long converted = idMetrics.record("feed.convert", start);
+        Tensor tensor = Tensor.create(dtype, shape, buffer);
+        idMetrics.record("feed.tensorCreate", converted);
+        return tensor;
+      } finally {
+        arena.release(inputName, dtype, shape, buffer);
+      }
+    } else {
+      throw new IllegalArgumentException("Data type is not supported");
+    }
+  }
+
+  /**
+   * Tokenizes the text (a string or an array of strings, one per row) into an INT32 or INT64 tensor of token ids, or
+   * of the attention mask if encode is "mask". The last dimension of the shape is the sequence length, it defaults to
+   * [number of texts, maxLength of the tokenizer].
+   */
+  private Tensor createTextTensor(RNTensorflowInference inference, ReadableMap data, String inputName, DataType dtype,
+                                  InferenceMetrics idMetrics) {
+    Tokenizer tokenizer = inference.getTokenizer();
+    if(tokenizer == null) {
+      throw new IllegalStateException("No tokenizer loaded for input " + inputName + ", call loadTokenizer first");
+    }
+    if(dtype != DataType.INT32 && dtype != DataType.INT64) {
+      throw new IllegalArgumentException("Text input " + inputName + " needs dtype int32 or int64");
+    }
+
+    String[] texts = data.getType("text") == ReadableType.Array
+            ? readableArrayToStringArray(data.getArray("text"))
+            : new String[] { data.getString("text") };
+    long[] shape = data.hasKey("shape")
+            ? readableArrayToLongArray(data.getArray("shape"))
+            : new long[] { texts.length, tokenizer.getMaxLength() };
+    int sequenceLength = shape.length > 0 ? (int) shape[shape.length - 1] : 1;
+    boolean mask = data.hasKey("encode") && "mask".equals(data.getString("encode"));
+
+    BufferArena arena = inference.getBufferArena();
+    long start = System.nanoTime();
+    ByteBuffer buffer = arena.acquire(inputName, dtype, shape, texts.length * sequenceLength * BinaryConverter.elementSize(dtype));
+    try {
+      tokenizer.encode(texts, sequenceLength, mask, dtype, buffer);
+      buffer.flip();
+      BinaryConverter.checkSize(dtype, shape, buffer);
+      long converted = idMetrics.record("feed.convert", start);
+      Tensor tensor = Tensor.create(dtype, shape, buffer);
+      idMetrics.record("feed.tensorCreate", converted);
+      return tensor;
+    } finally {
+      arena.release(inputName, dtype, shape, buffer);
+    }
+  }
 }
@@ -11,14 +11,17 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.uimanager.ViewManager;
 import com.facebook.react.bridge.JavaScriptModule;
 import com.rntensorflow.imagerecognition.RNImageRecognizerModule;
+import com.rntensorflow.metrics.MetricsRegistry;
 
 public class RNTensorFlowPackage implements ReactPackage {
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
+      InferenceExecutor executor = new InferenceExecutor();
+      MetricsRegistry metrics = new MetricsRegistry(executor);
       return Arrays.<NativeModule>asList(
-              new RNImageRecognizerModule(reactContext),
-              new RNTensorFlowInferenceModule(reactContext),
-              new RNTensorFlowGraphModule(reactContext),
+              new RNImageRecognizerModule(reactContext, executor, metrics),
+              new RNTensorFlowInferenceModule(reactContext, executor, metrics),
+              new RNTensorFlowGraphModule(reactContext, executor),
               new RNTensorFlowGraphOperationsModule(reactContext));
     }
 
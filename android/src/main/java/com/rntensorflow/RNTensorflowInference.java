@@ -1,6 +1,9 @@
 package com.rntensorflow;
 
 import com.facebook.react.bridge.*;
+import com.rntensorflow.converter.BinaryConverter;
+import com.rntensorflow.postprocessing.Reduction;
+import com.rntensorflow.tokenizer.Tokenizer;
 import org.tensorflow.DataType;
 import org.tensorflow.Graph;
 import org.tensorflow.Session;
@@ -9,12 +12,17 @@ import org.tensorflow.contrib.android.RunStats;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.rntensorflow.converter.ArrayConverter.*;
 import static com.rntensorflow.converter.ArrayConverter.byteArrayToBoolReadableArray;
@@ -24,16 +32,30 @@ public class RNTensorflowInference {
 
     private final ReactContext reactContext;
     private final TfContext tfContext;
+    private final ModelRegistry.SharedModel sharedModel;
+    private final BufferArena bufferArena = new BufferArena();
+    private final RunProfiler runProfiler = new RunProfiler();
+    private volatile Tokenizer tokenizer;
+    private boolean closed;
+    private boolean closing;
+    private int activeUses;
 
-    public RNTensorflowInference(ReactContext reactContext, TfContext tfContext) {
+    public RNTensorflowInference(ReactContext reactContext, TfContext tfContext, ModelRegistry.SharedModel sharedModel) {
         this.reactContext = reactContext;
         this.tfContext = tfContext;
+        this.sharedModel = sharedModel;
     }
 
     public static RNTensorflowInference init(ReactContext reactContext, String model) throws IOException {
+        return init(reactContext, model, null);
+    }
+
+    public static RNTensorflowInference init(ReactContext reactContext, String model,
+                                             ResourceManager.ProgressListener progressListener) throws IOException {
         loadNativeTf();
-        TfContext context = createContext(reactContext, model);
-        return new RNTensorflowInference(reactContext, context);
+        ModelRegistry.SharedModel sharedModel = ModelRegistry.getInstance().acquire(reactContext, model, progressListener);
+        TfContext context = new TfContext(sharedModel.getSession(), sharedModel.getGraph(), new TensorMemory());
+        return new RNTensorflowInference(reactContext, context, sharedModel);
     }
 
     private static void loadNativeTf() {
@@ -44,40 +66,57 @@ public class RNTensorflowInference {
         }
     }
 
-    private static TfContext createContext(ReactContext reactContext, String model) throws IOException {
-        byte[] b = new ResourceManager(reactContext).loadResource(model);
+    /**
+     * Feeds the tensor and takes ownership of it, it is closed once the run completes.
+     */
+    public void feed(String inputName, Tensor tensor) {
+        feed(tfContext.defaultRequest, inputName, tensor, true);
+    }
+
+    public void feed(String inputName, Tensor tensor, boolean owned) {
+        feed(tfContext.defaultRequest, inputName, tensor, owned);
+    }
 
-        Graph graph = new Graph();
-        graph.importGraphDef(b);
-        Session session = new Session(graph);
-        Session.Runner runner = session.runner();
+    public void feed(RequestContext request, String inputName, Tensor tensor) {
+        feed(request, inputName, tensor, true);
+    }
 
-        return new TfContext(session, runner, graph);
+    /**
+     * Feeds the tensor. An owned tensor is closed by the request once the run completes or the request is reset,
+     * a borrowed tensor (e.g. a native handle) stays open.
+     */
+    public void feed(RequestContext request, String inputName, Tensor tensor, boolean owned) {
+        request.feed(inputName, tensor, owned);
     }
 
-    public void feed(String inputName, Tensor tensor) {
-        tfContext.runner.feed(inputName, tensor);
+    /**
+     * Feeds the tensor of a native handle. The borrow is given back once the run completes or the request is reset.
+     */
+    public void feed(String inputName, TensorHandles.Borrow borrow) {
+        tfContext.defaultRequest.feed(inputName, borrow);
     }
 
     public void run(String[] outputNames, boolean enableStats) {
-        if(tfContext != null) {
-            for (String outputName : outputNames) {
-                tfContext.runner.fetch(outputName);
-            }
-            List<Tensor> tensors = tfContext.runner.run();
+        run(tfContext.defaultRequest, outputNames, enableStats);
+    }
 
-            tfContext.outputTensors.clear();
-            for (int i = 0; i < outputNames.length; i++) {
-                tfContext.outputTensors.put(outputNames[i], tensors.get(i));
-            }
+    public void run(RequestContext request, String[] outputNames, boolean enableStats) {
+        request.run(outputNames, enableStats ? runProfiler : null);
+    }
 
-        } else {
-            throw new IllegalStateException("Could not find inference for id");
+    public ReadableArray fetch(String outputName) {
+        return fetch(tfContext.defaultRequest, outputName);
+    }
+
+    public ReadableArray fetch(RequestContext request, String outputName) {
+        Tensor tensor = request.outputTensors.get(outputName);
+        if(tensor == null) {
+            throw new IllegalArgumentException("Could not find output " + outputName);
         }
+        return tensorToReadableArray(tensor);
     }
 
-    public ReadableArray fetch(String outputName) {
-            Tensor tensor = tfContext.outputTensors.get(outputName);
+    public static ReadableArray tensorToReadableArray(Tensor tensor) {
             int numElements = tensor.numElements();
 
             if(tensor.dataType() == DataType.DOUBLE) {
@@ -109,34 +148,372 @@ public class RNTensorflowInference {
             }
     }
 
-    public void close() {
-        if(tfContext != null) {
-            tfContext.session.close();
-            tfContext.outputTensors.clear();
+    /**
+     * Fetches a FLOAT or DOUBLE output as a primitive float array, for native post processing without the bridge.
+     */
+    public float[] fetchFloats(RequestContext request, String outputName) {
+        Tensor tensor = request.outputTensors.get(outputName);
+        if(tensor == null) {
+            throw new IllegalArgumentException("Could not find output " + outputName);
+        }
+
+        int numElements = tensor.numElements();
+        if(tensor.dataType() == DataType.FLOAT) {
+            float[] dst = new float[numElements];
+            tensor.writeTo(FloatBuffer.wrap(dst));
+            return dst;
+        } else if(tensor.dataType() == DataType.DOUBLE) {
+            DoubleBuffer src = DoubleBuffer.allocate(numElements);
+            tensor.writeTo(src);
+            float[] dst = new float[numElements];
+            for (int i = 0; i < numElements; i++) {
+                dst[i] = (float) src.get(i);
+            }
+            return dst;
         } else {
-            throw new IllegalStateException("Could not find inference for id");
+            throw new IllegalArgumentException("Output " + outputName + " is not a FLOAT or DOUBLE tensor");
         }
     }
 
+    /**
+     * Reduces the output natively, see {@link Reduction}. FLOAT and DOUBLE outputs are supported.
+     */
+    public WritableMap fetchReduced(String outputName, Reduction reduction) {
+        RequestContext request = tfContext.defaultRequest;
+        float[] values = fetchFloats(request, outputName);
+        return reduction.apply(values, request.outputTensors.get(outputName).shape());
+    }
+
+    public WritableMap fetchBinary(String outputName) {
+        return fetchBinary(tfContext.defaultRequest, outputName);
+    }
+
+    public WritableMap fetchBinary(RequestContext request, String outputName) {
+        Tensor tensor = request.outputTensors.get(outputName);
+        if(tensor == null) {
+            throw new IllegalArgumentException("Could not find output " + outputName);
+        }
+        return BinaryConverter.tensorToBase64Map(tensor);
+    }
+
+    /**
+     * Removes the output from the default request and hands ownership of the tensor to the caller.
+     */
+    public Tensor detach(String outputName) {
+        return tfContext.defaultRequest.detach(outputName);
+    }
+
+    /**
+     * Runs the inputs through the model and returns the output tensors without converting them.
+     * The caller owns the returned tensors.
+     */
+    public Map<String, Tensor> runTensors(Map<String, Tensor> inputs, String[] outputNames) {
+        RequestContext request = tfContext.acquire();
+        try {
+            for (Map.Entry<String, Tensor> input : inputs.entrySet()) {
+                feed(request, input.getKey(), input.getValue(), false);
+            }
+            run(request, outputNames, false);
+
+            Map<String, Tensor> outputs = new HashMap<>();
+            for (String outputName : outputNames) {
+                if(!outputs.containsKey(outputName)) {
+                    outputs.put(outputName, request.detach(outputName));
+                }
+            }
+            return outputs;
+        } finally {
+            tfContext.release(request);
+        }
+    }
+
+    /**
+     * Feeds, runs and fetches in one go on a request of its own. Takes ownership of all inputs except the borrowed ones.
+     */
+    public WritableMap runOnce(Map<String, Tensor> inputs, Collection<Tensor> borrowed, String[] outputNames) {
+        RequestContext request = tfContext.acquire();
+        try {
+            for (Map.Entry<String, Tensor> input : inputs.entrySet()) {
+                feed(request, input.getKey(), input.getValue(), !borrowed.contains(input.getValue()));
+            }
+            run(request, outputNames, false);
+
+            WritableMap outputs = new WritableNativeMap();
+            for (String outputName : outputNames) {
+                outputs.putArray(outputName, (WritableArray) fetch(request, outputName));
+            }
+            return outputs;
+        } finally {
+            tfContext.release(request);
+        }
+    }
+
+    /**
+     * Runs zero filled inputs through the graph so kernels are set up and memory is allocated before the first real
+     * inference. Returns the latency of the first (cold) run and the mean latency of the following (warm) runs.
+     */
+    public WritableMap warmUp(String[] inputNames, DataType[] dtypes, long[][] shapes, String[] outputNames, int runs) {
+        ByteBuffer[] zeros = new ByteBuffer[inputNames.length];
+        for (int i = 0; i < inputNames.length; i++) {
+            int elementSize = BinaryConverter.elementSize(dtypes[i]);
+            if(elementSize < 0) {
+                throw new IllegalArgumentException("Can not warm up input " + inputNames[i] + " of type " + dtypes[i]);
+            }
+            long numElements = 1;
+            for (long dimension : shapes[i]) {
+                numElements *= dimension;
+            }
+            long size = numElements * elementSize;
+            if(size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Can not warm up input " + inputNames[i] + " of " + size + " bytes");
+            }
+            zeros[i] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+        }
+
+        double coldMs = 0;
+        double warmTotalMs = 0;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            RequestContext request = tfContext.acquire();
+            try {
+                for (int i = 0; i < inputNames.length; i++) {
+                    zeros[i].rewind();
+                    feed(request, inputNames[i], Tensor.create(dtypes[i], shapes[i], zeros[i]));
+                }
+                run(request, outputNames, false);
+            } finally {
+                tfContext.release(request);
+            }
+
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+            if(run == 0) {
+                coldMs = elapsedMs;
+            } else {
+                warmTotalMs += elapsedMs;
+            }
+        }
+
+        WritableMap result = new WritableNativeMap();
+        result.putInt("runs", runs);
+        result.putDouble("coldMs", coldMs);
+        if(runs > 1) {
+            result.putDouble("warmMs", warmTotalMs / (runs - 1));
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the model open for a caller that uses it outside of its own executor lane, like a pipeline stage.
+     * Returns false if the model is already closed. Every successful call needs a matching {@link #endUse()}.
+     */
+    public synchronized boolean beginUse() {
+        if(closing) {
+            return false;
+        }
+        activeUses++;
+        return true;
+    }
+
+    public synchronized void endUse() {
+        activeUses--;
+        if(activeUses == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Closes the model once all uses started with {@link #beginUse()} ended.
+     */
+    public synchronized void close() {
+        closing = true;
+        boolean interrupted = false;
+        while (activeUses > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        tfContext.close();
+        bufferArena.clear();
+        runProfiler.reset();
+        if(!closed) {
+            closed = true;
+            ModelRegistry.getInstance().release(sharedModel);
+        }
+    }
+
+    public BufferArena getBufferArena() {
+        return bufferArena;
+    }
+
+    /**
+     * Returns the tokenizer text inputs are encoded with, or null if none was loaded.
+     */
+    public Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    public void setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
     public TfContext getTfContext() {
         return tfContext;
     }
 
+    /**
+     * Returns the nodes of the GraphDef the shared graph was loaded from, see {@link GraphDescription}.
+     */
+    List<GraphDescription.Node> getGraphNodes() {
+        return sharedModel.getNodes();
+    }
+
+    public RunProfiler getRunProfiler() {
+        return runProfiler;
+    }
+
+    public TensorMemory getTensorMemory() {
+        return tfContext.tensorMemory;
+    }
+
     public static class TfContext {
+        private static final int MAX_IDLE_REQUESTS = 4;
+
         final Session session;
-        Session.Runner runner;
         final Graph graph;
-        private final Map<String, Tensor> outputTensors;
+        private final TensorMemory tensorMemory;
+        private final RequestContext defaultRequest;
+        private final Queue<RequestContext> idleRequests = new ConcurrentLinkedQueue<>();
 
-        TfContext(Session session, Session.Runner runner, Graph graph) {
+        TfContext(Session session, Graph graph, TensorMemory tensorMemory) {
             this.session = session;
-            this.runner = runner;
             this.graph = graph;
-            outputTensors = new HashMap<>();
+            this.tensorMemory = tensorMemory;
+            this.defaultRequest = new RequestContext(session, tensorMemory);
+        }
+
+        /**
+         * Checks out a request context of its own, so several inferences can run on the shared session at once.
+         * Must be handed back with {@link #release(RequestContext)}.
+         */
+        public RequestContext acquire() {
+            RequestContext request = idleRequests.poll();
+            return request != null ? request : new RequestContext(session, tensorMemory);
+        }
+
+        public void release(RequestContext request) {
+            request.reset();
+            if(idleRequests.size() < MAX_IDLE_REQUESTS) {
+                idleRequests.offer(request);
+            }
         }
 
         public void reset() {
+            defaultRequest.reset();
+        }
+
+        void close() {
+            defaultRequest.reset();
+            RequestContext request;
+            while ((request = idleRequests.poll()) != null) {
+                request.reset();
+            }
+        }
+    }
+
+    /**
+     * Feeds, runner and outputs of a single inference. The stateful feed / run / fetch calls share a default request,
+     * self contained calls check out their own from the {@link TfContext}.
+     *
+     * The request owns the tensors it is fed (unless borrowed) and the outputs of its last run. Inputs are closed, and
+     * borrowed handles given back, as soon as the run completes, outputs when the next run replaces them or the request
+     * is reset.
+     */
+    public static class RequestContext {
+        private final Session session;
+        private final TensorMemory tensorMemory;
+        private Session.Runner runner;
+        private final List<Tensor> ownedInputs = new ArrayList<>();
+        private final List<TensorHandles.Borrow> borrowedInputs = new ArrayList<>();
+        private final Map<String, Tensor> outputTensors = new HashMap<>();
+
+        RequestContext(Session session, TensorMemory tensorMemory) {
+            this.session = session;
+            this.tensorMemory = tensorMemory;
+            this.runner = session.runner();
+        }
+
+        void feed(String inputName, Tensor tensor, boolean owned) {
+            if(owned) {
+                tensorMemory.track(tensor);
+                ownedInputs.add(tensor);
+            }
+            runner.feed(inputName, tensor);
+        }
+
+        void feed(String inputName, TensorHandles.Borrow borrow) {
+            borrowedInputs.add(borrow);
+            runner.feed(inputName, borrow.getTensor());
+        }
+
+        void run(String[] outputNames, RunProfiler profiler) {
+            try {
+                // An output asked for twice is fetched once, every fetch returns a tensor the request has to own
+                List<String> fetched = new ArrayList<>(outputNames.length);
+                for (String outputName : outputNames) {
+                    if(!fetched.contains(outputName)) {
+                        fetched.add(outputName);
+                        runner.fetch(outputName);
+                    }
+                }
+                List<Tensor> tensors = profiler != null ? profiler.run(runner) : runner.run();
+
+                closeOutputs();
+                for (int i = 0; i < fetched.size(); i++) {
+                    outputTensors.put(fetched.get(i), tensors.get(i));
+                    tensorMemory.track(tensors.get(i));
+                }
+            } finally {
+                closeInputs();
+                runner = session.runner();
+            }
+        }
+
+        Tensor detach(String outputName) {
+            Tensor tensor = outputTensors.remove(outputName);
+            if(tensor == null) {
+                throw new IllegalArgumentException("Could not find output " + outputName);
+            }
+            tensorMemory.untrack(tensor);
+            return tensor;
+        }
+
+        public void reset() {
+            closeInputs();
+            closeOutputs();
             runner = session.runner();
+        }
+
+        private void closeInputs() {
+            for (Tensor tensor : ownedInputs) {
+                tensorMemory.close(tensor);
+            }
+            ownedInputs.clear();
+            for (TensorHandles.Borrow borrow : borrowedInputs) {
+                borrow.giveBack();
+            }
+            borrowedInputs.clear();
+        }
+
+        private void closeOutputs() {
+            for (Tensor tensor : outputTensors.values()) {
+                tensorMemory.close(tensor);
+            }
             outputTensors.clear();
         }
     }
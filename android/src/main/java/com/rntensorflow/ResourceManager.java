@@ -1,5 +1,6 @@
 package com.rntensorflow;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.Resources;
 import android.webkit.URLUtil;
 import com.facebook.react.bridge.ReactContext;
@@ -7,22 +8,64 @@ import com.facebook.react.modules.network.OkHttpClientProvider;
 import okhttp3.Request;
 import okhttp3.Response;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 public class ResourceManager {
 
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    private static final int COPY_CHUNK_SIZE = 1024 * 1024;
+    private static final String MODEL_CACHE_DIRECTORY = "rntensorflow-models";
+
+    /**
+     * Receives the number of bytes of a resource loaded so far. totalBytes is -1 as long as the size is unknown.
+     * A resource fetched from a url is first downloaded into the cache and then read from there, each pass is
+     * reported separately.
+     */
+    public interface ProgressListener {
+        void onDownloadProgress(long bytesDownloaded, long totalBytes);
+
+        void onProgress(long bytesLoaded, long totalBytes);
+    }
+
     private ReactContext reactContext;
+    private ProgressListener progressListener;
 
     public ResourceManager(ReactContext reactContext) {
         this.reactContext = reactContext;
     }
 
+    public ResourceManager setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
     public String loadResourceAsString(String resource) {
         return new String(loadResource(resource));
     }
 
+    public String loadCachedResourceAsString(String resource) {
+        return new String(loadCachedResource(resource));
+    }
+
+    /**
+     * Like {@link #loadResource(String)}, but keeps resources fetched from a url in a disk cache. Meant for models and
+     * labels that are loaded again on every start of the app.
+     */
+    public byte[] loadCachedResource(String resource) {
+        if(URLUtil.isValidUrl(resource) && URLUtil.isNetworkUrl(resource)) {
+            return loadFromUrlCached(resource);
+        } else {
+            return loadResource(resource);
+        }
+    }
+
     public byte[] loadResource(String resource) {
         if(URLUtil.isValidUrl(resource)) {
             return loadFromUrl(resource);
@@ -31,39 +74,212 @@ public class ResourceManager {
         }
     }
 
+    public boolean isUrl(String resource) {
+        return URLUtil.isValidUrl(resource);
+    }
+
+    /**
+     * Opens a local resource as stream, resolved the same way as {@link #loadResource(String)}. The caller closes it.
+     */
+    public InputStream openLocalResource(String resource) {
+        LocalResource local = resolveLocalResource(resource);
+        try {
+            if(local.fileDescriptor != null) {
+                return local.fileDescriptor.createInputStream();
+            } else if(local.file != null) {
+                return new FileInputStream(local.file);
+            } else {
+                return local.inputStream;
+            }
+        } catch (IOException e) {
+            local.closeQuietly();
+            throw new IllegalArgumentException("Could not load resource");
+        }
+    }
+
     private byte[] loadFromLocal(String resource) {
+        LocalResource local = resolveLocalResource(resource);
+        try {
+            if(local.fileDescriptor != null) {
+                return assetFileDescriptorToByteArray(local.fileDescriptor);
+            } else if(local.file != null) {
+                return loadFromFile(local.file);
+            } else {
+                return inputStreamToByteArray(local.inputStream);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not load resource");
+        }
+    }
+
+    /**
+     * Resolves a local resource as drawable, asset or file, in that order. Uncompressed drawables and assets are opened
+     * as file descriptor so they can be memory mapped, compressed ones can only be streamed.
+     */
+    private LocalResource resolveLocalResource(String resource) {
+        Resources resources = reactContext.getResources();
+        int identifier = resources.getIdentifier(resource, "drawable", reactContext.getPackageName());
+        try {
+            return new LocalResource(resources.openRawResourceFd(identifier), null, null);
+        } catch (Resources.NotFoundException e) {
+            // Compressed resources can not be opened as file descriptor, they are streamed instead
+        }
+        try {
+            return new LocalResource(null, null, resources.openRawResource(identifier));
+        } catch (Resources.NotFoundException e) {
+            // Not a resource, try the assets
+        }
+
+        try {
+            return new LocalResource(reactContext.getAssets().openFd(resource), null, null);
+        } catch (IOException e) {
+            // Compressed assets can not be opened as file descriptor, they are streamed instead
+        }
+        try {
+            return new LocalResource(null, null, reactContext.getAssets().open(resource));
+        } catch (IOException e) {
+            // Not an asset either, try the file system
+        }
+
+        File file = new File(resource);
+        if(!file.isFile()) {
+            throw new IllegalArgumentException("Could not load resource");
+        }
+        return new LocalResource(null, file, null);
+    }
+
+    private byte[] loadFromFile(File file) throws IOException {
+        FileInputStream inputStream = new FileInputStream(file);
         try {
-            int identifier = reactContext.getResources().getIdentifier(resource, "drawable", reactContext.getPackageName());
-            InputStream inputStream = reactContext.getResources().openRawResource(identifier);
-            return inputStreamToByteArray(inputStream);
-        } catch (IOException | Resources.NotFoundException e) {
+            return channelToByteArray(inputStream.getChannel(), 0, file.length());
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private byte[] assetFileDescriptorToByteArray(AssetFileDescriptor fileDescriptor) throws IOException {
+        try {
+            FileInputStream inputStream = fileDescriptor.createInputStream();
             try {
-                InputStream inputStream = reactContext.getAssets().open(resource);
-                return inputStreamToByteArray(inputStream);
-            } catch (IOException e1) {
-                try {
-                    InputStream inputStream = new FileInputStream(resource);
-                    return inputStreamToByteArray(inputStream);
-                } catch (IOException e2) {
-                    throw new IllegalArgumentException("Could not load resource");
-                }
+                return channelToByteArray(inputStream.getChannel(), fileDescriptor.getStartOffset(), fileDescriptor.getLength());
+            } finally {
+                inputStream.close();
             }
+        } finally {
+            fileDescriptor.close();
         }
     }
 
-    private byte[] inputStreamToByteArray(InputStream inputStream) throws IOException {
-        byte[] b = new byte[inputStream.available()];
-        inputStream.read(b);
+    /**
+     * Memory maps the region and copies it once into an exactly sized array, without intermediate heap buffers.
+     */
+    private byte[] channelToByteArray(FileChannel channel, long offset, long length) throws IOException {
+        if(length > Integer.MAX_VALUE) {
+            throw new IOException("Resource is too large to be loaded");
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        byte[] b = new byte[(int) length];
+        int position = 0;
+        while (position < b.length) {
+            int chunk = Math.min(COPY_CHUNK_SIZE, b.length - position);
+            buffer.get(b, position, chunk);
+            position += chunk;
+            reportProgress(position, length);
+        }
         return b;
     }
 
+    /**
+     * Reads the stream until it ends. Asset streams know their length, they are read straight into an exactly sized
+     * array. Only if the length is unknown, or turns out to be an estimate, the bytes go through a growable buffer.
+     */
+    private byte[] inputStreamToByteArray(InputStream inputStream) throws IOException {
+        try {
+            byte[] b = new byte[Math.max(inputStream.available(), 0)];
+            int position = 0;
+            int read;
+            while (position < b.length && (read = inputStream.read(b, position, b.length - position)) >= 0) {
+                position += read;
+                reportProgress(position, b.length);
+            }
+            if(position < b.length) {
+                return Arrays.copyOf(b, position);
+            }
+
+            int next = inputStream.read();
+            if(next < 0) {
+                return b;
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(b.length * 2, READ_CHUNK_SIZE));
+            outputStream.write(b, 0, b.length);
+            outputStream.write(next);
+            byte[] chunk = new byte[READ_CHUNK_SIZE];
+            while ((read = inputStream.read(chunk)) >= 0) {
+                outputStream.write(chunk, 0, read);
+                reportProgress(outputStream.size(), -1);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
     private byte[] loadFromUrl(String url) {
         try {
             Request request = new Request.Builder().url(url).get().build();
-            Response response = OkHttpClientProvider.createClient().newCall(request).execute();
-            return response.body().bytes();
+            Response response = OkHttpClientProvider.getOkHttpClient().newCall(request).execute();
+            try {
+                return response.body().bytes();
+            } finally {
+                response.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not fetch data from url " + url);
+        }
+    }
+
+    private byte[] loadFromUrlCached(String url) {
+        try {
+            ModelCache modelCache = new ModelCache(new File(reactContext.getFilesDir(), MODEL_CACHE_DIRECTORY),
+                    OkHttpClientProvider.getOkHttpClient(), ModelCache.DEFAULT_MAX_BYTES);
+            return loadFromFile(modelCache.get(url, progressListener));
         } catch (IOException e) {
             throw new IllegalStateException("Could not fetch data from url " + url);
         }
     }
+
+    private void reportProgress(long bytesLoaded, long totalBytes) {
+        if(progressListener != null) {
+            progressListener.onProgress(bytesLoaded, totalBytes);
+        }
+    }
+
+    /**
+     * A resolved local resource, exactly one of the fields is set.
+     */
+    private static class LocalResource {
+        final AssetFileDescriptor fileDescriptor;
+        final File file;
+        final InputStream inputStream;
+
+        LocalResource(AssetFileDescriptor fileDescriptor, File file, InputStream inputStream) {
+            this.fileDescriptor = fileDescriptor;
+            this.file = file;
+            this.inputStream = inputStream;
+        }
+
+        void closeQuietly() {
+            try {
+                if(fileDescriptor != null) {
+                    fileDescriptor.close();
+                } else if(inputStream != null) {
+                    inputStream.close();
+                }
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
 }
@@ -0,0 +1,102 @@
+package com.rntensorflow;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+import org.tensorflow.contrib.android.RunStats;
+
+import java.util.List;
+
+/**
+ * Collects per-op timings of the runs made with stats enabled.
+ *
+ * The runs request a full trace with RunStats.runOptions() and their run metadata is accumulated in a RunStats.
+ * The per-op table is read back from its summary.
+ */
+public class RunProfiler {
+
+    private static final String TOP_BY_TIME_SECTION = "Top by Computation Time";
+
+    private RunStats runStats;
+    private int runs;
+
+    /**
+     * Runs the runner with tracing enabled and records its metadata.
+     */
+    public List<Tensor> run(Session.Runner runner) {
+        Session.Run run = runner.setOptions(RunStats.runOptions()).runAndFetchMetadata();
+        synchronized (this) {
+            if(runStats == null) {
+                runStats = new RunStats();
+            }
+            runStats.add(run.metadata);
+            runs++;
+        }
+        return run.outputs;
+    }
+
+    /**
+     * Returns the number of profiled runs, the full summary and the topN ops by average computation time.
+     */
+    public synchronized WritableMap getSummary(int topN) {
+        WritableMap result = new WritableNativeMap();
+        result.putInt("runs", runs);
+
+        String summary = runStats != null ? runStats.summary() : "";
+        result.putString("summary", summary);
+        result.putArray("topOps", parseTopOps(summary, topN));
+        return result;
+    }
+
+    public synchronized void reset() {
+        if(runStats != null) {
+            runStats.close();
+            runStats = null;
+        }
+        runs = 0;
+    }
+
+    /**
+     * Parses the rows of the "Top by Computation Time" table, whose columns are
+     * [node type] [start] [first] [avg ms] [%] [cdf%] [mem KB] ... [Name].
+     */
+    static WritableArray parseTopOps(String summary, int topN) {
+        WritableArray ops = new WritableNativeArray();
+        String[] lines = summary.split("\n");
+
+        int i = 0;
+        while (i < lines.length && !lines[i].contains(TOP_BY_TIME_SECTION)) {
+            i++;
+        }
+        // Skip the section title and the column header
+        i += 2;
+
+        int count = 0;
+        for (; i < lines.length && count < topN; i++) {
+            String line = lines[i].trim();
+            if(line.isEmpty() || line.startsWith("=")) {
+                break;
+            }
+
+            String[] columns = line.split("\\s+");
+            if(columns.length < 6) {
+                continue;
+            }
+            try {
+                WritableMap op = new WritableNativeMap();
+                op.putString("name", columns[columns.length - 1]);
+                op.putString("type", columns[0]);
+                op.putDouble("avgMs", Double.parseDouble(columns[3]));
+                op.putDouble("percent", Double.parseDouble(columns[4].replace("%", "")));
+                ops.pushMap(op);
+                count++;
+            } catch (NumberFormatException e) {
+                // Not a table row
+            }
+        }
+        return ops;
+    }
+}
@@ -0,0 +1,91 @@
+package com.rntensorflow;
+
+import org.tensorflow.Tensor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps tensors on the native side behind opaque handles, so outputs of one model can be fed to another
+ * without crossing the bridge.
+ *
+ * Feeds and pipeline stages borrow the tensor of a handle until the request they were fed to closes its inputs.
+ * Releasing a handle makes it unknown right away, but its tensor is only closed once the last borrow is given back.
+ */
+public class TensorHandles {
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public synchronized String put(Tensor tensor) {
+        String handle = UUID.randomUUID().toString();
+        entries.put(handle, new Entry(tensor));
+        return handle;
+    }
+
+    /**
+     * Borrows the tensor of the handle. Every borrow has to be given back with {@link Borrow#giveBack()}.
+     */
+    public synchronized Borrow borrow(String handle) {
+        Entry entry = entries.get(handle);
+        if(entry == null) {
+            throw new IllegalArgumentException("Could not find tensor for handle " + handle);
+        }
+        entry.borrows++;
+        return new Borrow(entry);
+    }
+
+    public synchronized void release(String handle) {
+        Entry entry = entries.remove(handle);
+        if(entry != null) {
+            entry.released = true;
+            closeIfUnused(entry);
+        }
+    }
+
+    public synchronized void releaseAll() {
+        for (String handle : new ArrayList<>(entries.keySet())) {
+            release(handle);
+        }
+    }
+
+    private static void closeIfUnused(Entry entry) {
+        if(entry.released && entry.borrows == 0) {
+            entry.tensor.close();
+        }
+    }
+
+    private static class Entry {
+        final Tensor tensor;
+        int borrows;
+        boolean released;
+
+        Entry(Tensor tensor) {
+            this.tensor = tensor;
+        }
+    }
+
+    public class Borrow {
+        private final Entry entry;
+        private boolean givenBack;
+
+        Borrow(Entry entry) {
+            this.entry = entry;
+        }
+
+        public Tensor getTensor() {
+            return entry.tensor;
+        }
+
+        public void giveBack() {
+            synchronized (TensorHandles.this) {
+                if(!givenBack) {
+                    givenBack = true;
+                    entry.borrows--;
+                    closeIfUnused(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.rntensorflow;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import org.tensorflow.Tensor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts for the native memory of the tensors a model currently owns.
+ */
+public class TensorMemory {
+
+    private final AtomicLong liveTensors = new AtomicLong();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicLong peakBytes = new AtomicLong();
+    private final AtomicLong closedTensors = new AtomicLong();
+
+    public void track(Tensor tensor) {
+        liveTensors.incrementAndGet();
+        long bytes = liveBytes.addAndGet(tensor.numBytes());
+
+        long peak = peakBytes.get();
+        while (bytes > peak && !peakBytes.compareAndSet(peak, bytes)) {
+            peak = peakBytes.get();
+        }
+    }
+
+    /**
+     * Stops tracking a tensor whose ownership moved elsewhere, without closing it.
+     */
+    public void untrack(Tensor tensor) {
+        liveTensors.decrementAndGet();
+        liveBytes.addAndGet(-tensor.numBytes());
+    }
+
+    public void close(Tensor tensor) {
+        untrack(tensor);
+        tensor.close();
+        closedTensors.incrementAndGet();
+    }
+
+    public long getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = new WritableNativeMap();
+        stats.putDouble("liveTensors", liveTensors.get());
+        stats.putDouble("liveBytes", liveBytes.get());
+        stats.putDouble("peakBytes", peakBytes.get());
+        stats.putDouble("closedTensors", closedTensors.get());
+        return stats;
+    }
+}
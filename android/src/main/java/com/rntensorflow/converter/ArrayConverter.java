@@ -4,8 +4,7 @@ import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableNativeArray;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
 
 public class ArrayConverter {
 
@@ -54,30 +53,33 @@ public class ArrayConverter {
         return arr;
     }
 
-    public static byte[] readableArrayToByteBoolArray(ReadableArray readableArray) {
-        byte[] bytesArr = new byte[readableArray.size() / 8 + 1];
-        for (int entry = 0; entry < bytesArr.length; entry++) {
-            for (int bit = 0; bit < 8; bit++) {
-                if (readableArray.getBoolean(entry * 8 + bit)) {
-                    bytesArr[entry] |= (128 >> bit);
-                }
-            }
+    public static void readableArrayToDoubleBuffer(ReadableArray readableArray, ByteBuffer dst) {
+        for (int i = 0; i < readableArray.size(); i++) {
+            dst.putDouble(i * 8, readableArray.getDouble(i));
         }
+    }
 
-        return bytesArr;
+    public static void readableArrayToFloatBuffer(ReadableArray readableArray, ByteBuffer dst) {
+        for (int i = 0; i < readableArray.size(); i++) {
+            dst.putFloat(i * 4, (float)readableArray.getDouble(i));
+        }
     }
 
-    public static byte[] readableArrayToByteStringArray(ReadableArray readableArray) {
-        List<Byte> bytes = new ArrayList<>(readableArray.size() * 5);
+    public static void readableArrayToIntBuffer(ReadableArray readableArray, ByteBuffer dst) {
         for (int i = 0; i < readableArray.size(); i++) {
-            for (byte b :readableArray.getString(i).getBytes()) {
-                bytes.add(b);
-            }
+            dst.putInt(i * 4, readableArray.getInt(i));
         }
+    }
 
-        byte[] bytesArr = new byte[bytes.size()];
-        for (int i = 0; i < bytes.size(); i++) {
-            bytesArr[i] = bytes.get(i);
+    public static byte[] readableArrayToByteBoolArray(ReadableArray readableArray) {
+        int size = readableArray.size();
+        byte[] bytesArr = new byte[size / 8 + 1];
+        for (int entry = 0; entry < bytesArr.length; entry++) {
+            for (int bit = 0; bit < 8 && entry * 8 + bit < size; bit++) {
+                if (readableArray.getBoolean(entry * 8 + bit)) {
+                    bytesArr[entry] |= (128 >> bit);
+                }
+            }
         }
 
         return bytesArr;
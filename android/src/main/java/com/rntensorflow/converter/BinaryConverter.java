@@ -0,0 +1,186 @@
+package com.rntensorflow.converter;
+
+import android.util.Base64;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import org.tensorflow.DataType;
+import org.tensorflow.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class BinaryConverter {
+
+    public static final String ENCODING_BASE64 = "base64";
+
+    public static int decodedLength(String data, String encoding) {
+        checkEncoding(encoding);
+        return base64DecodedLength(data);
+    }
+
+    /**
+     * Decodes the payload into dst starting at its current position. dst must have {@link #decodedLength} bytes left.
+     */
+    public static void decode(String data, String encoding, ByteBuffer dst) {
+        checkEncoding(encoding);
+        base64ToByteBuffer(data, dst);
+    }
+
+    /**
+     * Returns the number of bytes the base64 payload decodes to. Whitespace is ignored, any other character outside
+     * the alphabet or a length that is not a valid base64 quantum is rejected.
+     */
+    public static int base64DecodedLength(String base64) {
+        int chars = base64DataChars(base64);
+        return chars * 3 / 4;
+    }
+
+    public static void base64ToByteBuffer(String base64, ByteBuffer dst) {
+        int bits = 0;
+        int numBits = 0;
+        for (int i = 0; i < base64.length(); i++) {
+            char c = base64.charAt(i);
+            if(c == '=') {
+                break;
+            }
+            int value = base64Value(c);
+            if(value < 0) {
+                if(isWhitespace(c)) {
+                    continue;
+                }
+                throw invalidCharacter(c, i);
+            }
+
+            bits = (bits << 6) | value;
+            numBits += 6;
+            if(numBits >= 8) {
+                numBits -= 8;
+                dst.put((byte) (bits >> numBits));
+            }
+        }
+    }
+
+    private static int base64DataChars(String base64) {
+        int chars = 0;
+        int padding = 0;
+        for (int i = 0; i < base64.length(); i++) {
+            char c = base64.charAt(i);
+            if(isWhitespace(c)) {
+                continue;
+            }
+            if(c == '=') {
+                padding++;
+            } else if(padding > 0 || base64Value(c) < 0) {
+                throw invalidCharacter(c, i);
+            } else {
+                chars++;
+            }
+        }
+
+        if(chars % 4 == 1 || padding > 2 || (padding > 0 && (chars + padding) % 4 != 0)) {
+            throw new IllegalArgumentException("Invalid base64 payload length of " + (chars + padding) + " characters");
+        }
+        return chars;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static IllegalArgumentException invalidCharacter(char c, int index) {
+        return new IllegalArgumentException("Invalid base64 character '" + c + "' at index " + index);
+    }
+
+    private static int base64Value(char c) {
+        if(c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if(c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if(c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if(c == '+' || c == '-') {
+            return 62;
+        } else if(c == '/' || c == '_') {
+            return 63;
+        } else {
+            return -1;
+        }
+    }
+
+    private static void checkEncoding(String encoding) {
+        if(!ENCODING_BASE64.equalsIgnoreCase(encoding)) {
+            throw new IllegalArgumentException("Encoding " + encoding + " is not supported");
+        }
+    }
+
+    public static String byteBufferToBase64(ByteBuffer buffer) {
+        if(buffer.hasArray()) {
+            return Base64.encodeToString(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), Base64.NO_WRAP);
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return Base64.encodeToString(bytes, Base64.NO_WRAP);
+        }
+    }
+
+    /**
+     * Returns the number of bytes a single element of the given type occupies in a tensor buffer,
+     * or -1 for variable length types like STRING.
+     */
+    public static int elementSize(DataType dtype) {
+        switch (dtype) {
+            case DOUBLE:
+            case INT64:
+                return 8;
+            case FLOAT:
+            case INT32:
+                return 4;
+            case UINT8:
+            case BOOL:
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    public static void checkSize(DataType dtype, long[] shape, ByteBuffer buffer) {
+        int elementSize = elementSize(dtype);
+        if(elementSize < 0) {
+            return;
+        }
+
+        long numElements = 1;
+        for (long dim : shape) {
+            numElements *= dim;
+        }
+
+        if(numElements * elementSize != buffer.remaining()) {
+            throw new IllegalArgumentException("Expected " + numElements * elementSize + " bytes for "
+                    + dtype.name() + " tensor but got " + buffer.remaining());
+        }
+    }
+
+    /**
+     * Copies the raw tensor bytes (native byte order) into a single base64 payload together with its dtype and shape.
+     */
+    public static WritableMap tensorToBase64Map(Tensor tensor) {
+        ByteBuffer dst = ByteBuffer.allocate(tensor.numBytes()).order(ByteOrder.nativeOrder());
+        tensor.writeTo(dst);
+        dst.flip();
+
+        WritableArray shape = new WritableNativeArray();
+        for (long dim : tensor.shape()) {
+            shape.pushDouble(dim);
+        }
+
+        WritableMap map = new WritableNativeMap();
+        map.putString("data", byteBufferToBase64(dst));
+        map.putString("encoding", ENCODING_BASE64);
+        map.putString("dtype", tensor.dataType().name());
+        map.putString("byteOrder", ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? "littleEndian" : "bigEndian");
+        map.putArray("shape", shape);
+        return map;
+    }
+}
@@ -1,14 +1,24 @@
 package com.rntensorflow.converter;
 
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.bridge.WritableNativeMap;
 import org.tensorflow.Output;
+import org.tensorflow.Shape;
 
 public class OutputConverter {
 
     public static WritableMap convert(Output output) {
+        Shape shape = output.shape();
         WritableNativeMap shapeMap = new WritableNativeMap();
-        shapeMap.putInt("numDimensions", output.shape().numDimensions());
+        shapeMap.putInt("numDimensions", shape.numDimensions());
+        if(shape.numDimensions() >= 0) {
+            WritableNativeArray dimensions = new WritableNativeArray();
+            for (int i = 0; i < shape.numDimensions(); i++) {
+                dimensions.pushDouble(shape.size(i));
+            }
+            shapeMap.putArray("dimensions", dimensions);
+        }
 
         WritableNativeMap map = new WritableNativeMap();
         map.putInt("index", output.index());
@@ -0,0 +1,116 @@
+package com.rntensorflow.converter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes strings into the buffer layout the TensorFlow C API expects for STRING tensors.
+ *
+ * The buffer starts with one 64 bit offset per element, relative to the end of the offset table, followed by each
+ * element as a varint length and its UTF-8 bytes. The bytes are written straight into the buffer, no intermediate
+ * byte arrays are created per string.
+ */
+public class StringTensorEncoder {
+
+    private static final int OFFSET_SIZE = 8;
+
+    /**
+     * Returns the number of bytes {@link #encode} writes for the strings.
+     */
+    public static int encodedSize(String[] strings) {
+        int size = strings.length * OFFSET_SIZE;
+        for (String string : strings) {
+            int length = utf8Length(string);
+            size += varintSize(length) + length;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the offset table and the elements into dst starting at its current position. dst needs
+     * {@link #encodedSize} bytes left and has to be in native byte order.
+     */
+    public static void encode(String[] strings, ByteBuffer dst) {
+        int[] lengths = new int[strings.length];
+        long offset = 0;
+        for (int i = 0; i < strings.length; i++) {
+            lengths[i] = utf8Length(strings[i]);
+            dst.putLong(offset);
+            offset += varintSize(lengths[i]) + lengths[i];
+        }
+
+        for (int i = 0; i < strings.length; i++) {
+            putVarint(dst, lengths[i]);
+            putUtf8(dst, strings[i]);
+        }
+    }
+
+    static int utf8Length(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if(c < 0x80) {
+                length += 1;
+            } else if(c < 0x800) {
+                length += 2;
+            } else if(isSurrogatePair(string, i)) {
+                length += 4;
+                i++;
+            } else if(isSurrogate(c)) {
+                // Unpaired surrogates are replaced by '?' like String.getBytes does
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static void putUtf8(ByteBuffer dst, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if(c < 0x80) {
+                dst.put((byte) c);
+            } else if(c < 0x800) {
+                dst.put((byte) (0xC0 | (c >> 6)));
+                dst.put((byte) (0x80 | (c & 0x3F)));
+            } else if(isSurrogatePair(string, i)) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                dst.put((byte) (0xF0 | (codePoint >> 18)));
+                dst.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                dst.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                dst.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if(isSurrogate(c)) {
+                dst.put((byte) '?');
+            } else {
+                dst.put((byte) (0xE0 | (c >> 12)));
+                dst.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                dst.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static boolean isSurrogatePair(String string, int index) {
+        return Character.isHighSurrogate(string.charAt(index)) && index + 1 < string.length()
+                && Character.isLowSurrogate(string.charAt(index + 1));
+    }
+
+    private static boolean isSurrogate(char c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer dst, int value) {
+        while ((value & ~0x7F) != 0) {
+            dst.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dst.put((byte) value);
+    }
+}
@@ -0,0 +1,64 @@
+package com.rntensorflow.imagerecognition;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scales an image to the model input size and normalizes its pixels into a float tensor buffer.
+ *
+ * Holds the bitmap, canvas, matrix and pixel array for one input size so they are allocated once and reused for
+ * every image. An instance is not thread safe, concurrent recognitions each check out their own.
+ */
+public class ImagePreprocessor {
+
+    private final int inputSize;
+    private final Bitmap bitmap;
+    private final Canvas canvas;
+    private final Matrix matrix = new Matrix();
+    private final int[] pixels;
+
+    public ImagePreprocessor(int inputSize) {
+        this.inputSize = inputSize;
+        this.bitmap = Bitmap.createBitmap(inputSize, inputSize, Bitmap.Config.ARGB_8888);
+        this.canvas = new Canvas(bitmap);
+        this.pixels = new int[inputSize * inputSize];
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getNumBytes() {
+        return pixels.length * 3 * 4;
+    }
+
+    /**
+     * Writes the normalized RGB values of the image as floats into dst, starting at the given byte offset.
+     */
+    public void preprocess(Bitmap image, ByteBuffer dst, int offset, int imageMean, float imageStd) {
+        updateMatrix(image.getWidth(), image.getHeight());
+        bitmap.eraseColor(0);
+        canvas.drawBitmap(image, matrix, null);
+        bitmap.getPixels(pixels, 0, inputSize, 0, 0, inputSize, inputSize);
+
+        PixelNormalizer.normalize(pixels, dst, offset, imageMean, imageStd);
+    }
+
+    private void updateMatrix(int srcWidth, int srcHeight) {
+        matrix.reset();
+
+        if (srcWidth != inputSize || srcHeight != inputSize) {
+            float scaleFactorX = inputSize / (float) srcWidth;
+            float scaleFactorY = inputSize / (float) srcHeight;
+            float scaleFactor = Math.max(scaleFactorX, scaleFactorY);
+            matrix.postScale(scaleFactor, scaleFactor);
+        }
+    }
+
+    public void recycle() {
+        bitmap.recycle();
+    }
+}
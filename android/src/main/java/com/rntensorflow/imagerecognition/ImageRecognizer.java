@@ -2,16 +2,30 @@ package com.rntensorflow.imagerecognition;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Matrix;
 import com.facebook.react.bridge.*;
+import com.rntensorflow.BufferArena;
 import com.rntensorflow.RNTensorflowInference;
 import com.rntensorflow.ResourceManager;
+import com.rntensorflow.metrics.InferenceMetrics;
+import com.rntensorflow.postprocessing.TopK;
+import org.tensorflow.DataType;
 import org.tensorflow.Tensor;
 
 import java.io.IOException;
-import java.nio.FloatBuffer;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ImageRecognizer {
 
@@ -24,16 +38,26 @@ public class ImageRecognizer {
 
     private RNTensorflowInference inference;
     private ResourceManager resourceManager;
+    private final InferenceMetrics metrics;
 
     private int imageMean;
     private float imageStd;
 
     private String[] labels;
 
-    public ImageRecognizer(RNTensorflowInference inference, ResourceManager resourceManager,
+    private static final ExecutorService PREPROCESSING_POOL = createPreprocessingPool();
+
+    private final ConcurrentMap<Integer, Queue<ImagePreprocessor>> preprocessors = new ConcurrentHashMap<>();
+
+    private final Object lifecycleLock = new Object();
+    private int activeRecognitions;
+    private boolean closed;
+
+    public ImageRecognizer(RNTensorflowInference inference, ResourceManager resourceManager, InferenceMetrics metrics,
                            int imageMean, float imageStd, String[] labels) {
         this.inference = inference;
         this.resourceManager = resourceManager;
+        this.metrics = metrics;
         this.imageMean = imageMean;
         this.imageStd = imageStd;
         this.labels = labels;
@@ -44,14 +68,22 @@ public class ImageRecognizer {
             String modelFilename,
             String labelFilename,
             Integer imageMean,
-            Double imageStd) throws IOException {
+            Double imageStd,
+            InferenceMetrics metrics,
+            ResourceManager.ProgressListener progressListener) throws IOException {
         Integer imageMeanResolved = imageMean != null ? imageMean : IMAGE_MEAN;
         Float imageStdResolved = imageStd != null ? imageStd.floatValue() : IMAGE_STD;
 
-        RNTensorflowInference inference = RNTensorflowInference.init(reactContext, modelFilename);
+        RNTensorflowInference inference = RNTensorflowInference.init(reactContext, modelFilename, progressListener);
         ResourceManager resourceManager = new ResourceManager(reactContext);
-        String[] labels = resourceManager.loadResourceAsString(labelFilename).split("\\r?\\n");
-        return new ImageRecognizer(inference, resourceManager, imageMeanResolved, imageStdResolved, labels);
+        String[] labels;
+        try {
+            labels = resourceManager.loadCachedResourceAsString(labelFilename).split("\\r?\\n");
+        } catch (RuntimeException e) {
+            inference.close();
+            throw e;
+        }
+        return new ImageRecognizer(inference, resourceManager, metrics, imageMeanResolved, imageStdResolved, labels);
     }
 
     public WritableArray recognizeImage(final String image,
@@ -60,79 +92,306 @@ public class ImageRecognizer {
                                         final String outputName,
                                         final Integer maxResults,
                                         final Double threshold) {
+        return recognizeImages(new String[] {image}, inputName, inputSize, outputName, maxResults, threshold).get(0);
+    }
+
+    /**
+     * Recognizes all images with a single session run on one [N, inputSize, inputSize, 3] tensor.
+     * The images are decoded and preprocessed in parallel and one result array is returned per image.
+     */
+    public List<WritableArray> recognizeImages(final String[] images,
+                                               final String inputName,
+                                               final Integer inputSize,
+                                               final String outputName,
+                                               final Integer maxResults,
+                                               final Double threshold) {
+        if(images.length == 0) {
+            return new ArrayList<>();
+        }
+
+        beginRecognition();
+        try {
+            return runRecognition(images, inputName, inputSize, outputName, maxResults, threshold);
+        } finally {
+            endRecognition();
+        }
+    }
 
+    private List<WritableArray> runRecognition(String[] images, String inputName, Integer inputSize, String outputName,
+                                               Integer maxResults, Double threshold) {
         String inputNameResolved = inputName != null ? inputName : "input";
         String outputNameResolved = outputName != null ? outputName : "output";
         Integer maxResultsResolved = maxResults != null ? maxResults : MAX_RESULTS;
         Float thresholdResolved = threshold != null ? threshold.floatValue() : THRESHOLD;
 
-        Bitmap bitmapRaw = loadImage(resourceManager.loadResource(image));
-
         int inputSizeResolved = inputSize != null ? inputSize : 224;
-        int[] intValues = new int[inputSizeResolved * inputSizeResolved];
-        float[] floatValues = new float[inputSizeResolved * inputSizeResolved * 3];
-
-        Bitmap bitmap = Bitmap.createBitmap(inputSizeResolved, inputSizeResolved, Bitmap.Config.ARGB_8888);
-        Matrix matrix = createMatrix(bitmapRaw.getWidth(), bitmapRaw.getHeight(), inputSizeResolved, inputSizeResolved);
-        final Canvas canvas = new Canvas(bitmap);
-        canvas.drawBitmap(bitmapRaw, matrix, null);
-        bitmap.getPixels(intValues, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
-        for (int i = 0; i < intValues.length; ++i) {
-            final int val = intValues[i];
-            floatValues[i * 3 + 0] = (((val >> 16) & 0xFF) - imageMean) / imageStd;
-            floatValues[i * 3 + 1] = (((val >> 8) & 0xFF) - imageMean) / imageStd;
-            floatValues[i * 3 + 2] = ((val & 0xFF) - imageMean) / imageStd;
-        }
-        Tensor tensor = Tensor.create(new long[]{1, inputSizeResolved, inputSizeResolved, 3}, FloatBuffer.wrap(floatValues));
-        inference.feed(inputNameResolved, tensor);
-        inference.run(new String[] {outputNameResolved}, false);
-        ReadableArray outputs = inference.fetch(outputNameResolved);
-
-        List<WritableMap> results = new ArrayList<>();
-        for (int i = 0; i < outputs.size(); ++i) {
-            if (outputs.getDouble(i) > thresholdResolved) {
+        int imageBytes = inputSizeResolved * inputSizeResolved * 3 * 4;
+        long[] shape = new long[]{images.length, inputSizeResolved, inputSizeResolved, 3};
+
+        long start = System.nanoTime();
+        BufferArena arena = inference.getBufferArena();
+        ByteBuffer floatValues = arena.acquire(inputNameResolved, DataType.FLOAT, shape, images.length * imageBytes);
+        Tensor tensor;
+        try {
+            preprocessImages(images, inputSizeResolved, floatValues, imageBytes);
+            start = metrics.record("recognize.preprocess", start);
+            tensor = Tensor.create(DataType.FLOAT, shape, floatValues);
+            start = metrics.record("recognize.tensorCreate", start);
+        } finally {
+            arena.release(inputNameResolved, DataType.FLOAT, shape, floatValues);
+        }
+
+        RNTensorflowInference.RequestContext request = inference.getTfContext().acquire();
+        float[] outputs;
+        try {
+            inference.feed(request, inputNameResolved, tensor);
+            inference.run(request, new String[] {outputNameResolved}, false);
+            start = metrics.record("recognize.run", start);
+            outputs = inference.fetchFloats(request, outputNameResolved);
+            start = metrics.record("recognize.fetch", start);
+        } finally {
+            inference.getTfContext().release(request);
+        }
+
+        int numClasses = outputs.length / images.length;
+        int[] topIndices = new int[Math.max(maxResultsResolved, 0)];
+        List<WritableArray> results = new ArrayList<>(images.length);
+        for (int image = 0; image < images.length; image++) {
+            int offset = image * numClasses;
+            int finalSize = TopK.select(outputs, offset, numClasses, maxResultsResolved, thresholdResolved, topIndices);
+            WritableArray array = new WritableNativeArray();
+            for (int i = 0; i < finalSize; i++) {
+                int index = topIndices[i] - offset;
                 WritableMap entry = new WritableNativeMap();
-                entry.putString("id", String.valueOf(i));
-                entry.putString("name", labels.length > i ? labels[i] : "unknown");
-                entry.putDouble("confidence", outputs.getDouble(i));
-                results.add(entry);
+                entry.putString("id", String.valueOf(index));
+                entry.putString("name", labels.length > index ? labels[index] : "unknown");
+                entry.putDouble("confidence", outputs[topIndices[i]]);
+                array.pushMap(entry);
             }
+            results.add(array);
         }
+        metrics.record("recognize.postprocess", start);
 
-        Collections.sort(results, new Comparator<ReadableMap>() {
-            @Override
-            public int compare(ReadableMap first, ReadableMap second) {
-                return Double.compare(second.getDouble("confidence"), first.getDouble("confidence"));
+        return results;
+    }
+
+    /**
+     * Runs a zero filled image batch of one through the model, see {@link RNTensorflowInference#warmUp}.
+     */
+    public WritableMap warmUp(String inputName, Integer inputSize, String outputName, int runs) {
+        String inputNameResolved = inputName != null ? inputName : "input";
+        String outputNameResolved = outputName != null ? outputName : "output";
+        int inputSizeResolved = inputSize != null ? inputSize : 224;
+        beginRecognition();
+        try {
+            return inference.warmUp(new String[] {inputNameResolved}, new DataType[] {DataType.FLOAT},
+                    new long[][] {{1, inputSizeResolved, inputSizeResolved, 3}}, new String[] {outputNameResolved}, runs);
+        } finally {
+            endRecognition();
+        }
+    }
+
+    private void preprocessImages(String[] images, int inputSize, ByteBuffer dst, int imageBytes) {
+        List<Future<?>> pending = new ArrayList<>(images.length);
+        for (int i = 1; i < images.length; i++) {
+            pending.add(PREPROCESSING_POOL.submit(preprocessTask(images[i], inputSize, dst, i * imageBytes)));
+        }
+
+        RuntimeException failure = null;
+        try {
+            preprocessTask(images[0], inputSize, dst, 0).run();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if(failure == null) {
+                    failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if(failure == null) {
+                    failure = new IllegalStateException(e);
+                }
             }
-        });
-        int finalSize = Math.min(results.size(), maxResultsResolved);
-        WritableArray array = new WritableNativeArray();
-        for (int i = 0; i < finalSize; i++) {
-            array.pushMap(results.get(i));
         }
 
-        inference.getTfContext().reset();
-        return array;
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    private Runnable preprocessTask(final String image, final int inputSize, final ByteBuffer dst, final int offset) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmapRaw = loadImage(image, inputSize);
+                ImagePreprocessor preprocessor = acquirePreprocessor(inputSize);
+                try {
+                    preprocessor.preprocess(bitmapRaw, dst, offset, imageMean, imageStd);
+                } finally {
+                    releasePreprocessor(preprocessor);
+                    bitmapRaw.recycle();
+                }
+            }
+        };
     }
 
-    private Bitmap loadImage(byte[] image) {
+    public BufferArena getBufferArena() {
+        return inference.getBufferArena();
+    }
+
+    /**
+     * Decodes the image subsampled by the largest power of two that keeps its shorter side at least inputSize,
+     * so large photos are never decoded in full resolution. Local images are decoded straight from their stream.
+     */
+    private Bitmap loadImage(String image, int inputSize) {
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inPreferredConfig = Bitmap.Config.ARGB_8888;
-        return BitmapFactory.decodeByteArray(image, 0, image.length);
+
+        Bitmap bitmap;
+        if(resourceManager.isUrl(image)) {
+            byte[] bytes = resourceManager.loadResource(image);
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+            options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight, inputSize);
+            options.inJustDecodeBounds = false;
+            bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } else {
+            options.inJustDecodeBounds = true;
+            decodeLocalImage(image, options);
+            options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight, inputSize);
+            options.inJustDecodeBounds = false;
+            bitmap = decodeLocalImage(image, options);
+        }
+
+        if(bitmap == null) {
+            throw new IllegalArgumentException("Could not decode image " + image);
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeLocalImage(String image, BitmapFactory.Options options) {
+        InputStream inputStream = resourceManager.openLocalResource(image);
+        try {
+            return BitmapFactory.decodeStream(inputStream, null, options);
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    static int calculateSampleSize(int width, int height, int inputSize) {
+        int sampleSize = 1;
+        if(width <= 0 || height <= 0) {
+            return sampleSize;
+        }
+
+        while (Math.min(width, height) / (sampleSize * 2) >= inputSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static ExecutorService createPreprocessingPool() {
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "RNImageRecognition-preprocess-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private ImagePreprocessor acquirePreprocessor(int inputSize) {
+        Queue<ImagePreprocessor> idle = preprocessors.get(inputSize);
+        ImagePreprocessor preprocessor = idle != null ? idle.poll() : null;
+        return preprocessor != null ? preprocessor : new ImagePreprocessor(inputSize);
     }
 
-    private Matrix createMatrix(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
-        Matrix matrix = new Matrix();
+    private void releasePreprocessor(ImagePreprocessor preprocessor) {
+        synchronized (lifecycleLock) {
+            if(!closed) {
+                idlePreprocessors(preprocessor.getInputSize()).offer(preprocessor);
+                return;
+            }
+        }
+        // Recognitions still running when the recognizer was closed recycle their preprocessors themselves
+        preprocessor.recycle();
+    }
+
+    private Queue<ImagePreprocessor> idlePreprocessors(int inputSize) {
+        Queue<ImagePreprocessor> idle = preprocessors.get(inputSize);
+        if(idle == null) {
+            Queue<ImagePreprocessor> newIdle = new ConcurrentLinkedQueue<>();
+            idle = preprocessors.putIfAbsent(inputSize, newIdle);
+            if(idle == null) {
+                idle = newIdle;
+            }
+        }
+        return idle;
+    }
 
-        if (srcWidth != dstWidth || srcHeight != dstHeight) {
-            float scaleFactorX = dstWidth / (float) srcWidth;
-            float scaleFactorY = dstHeight / (float) srcHeight;
-            float scaleFactor = Math.max(scaleFactorX, scaleFactorY);
-            matrix.postScale(scaleFactor, scaleFactor);
+    private void beginRecognition() {
+        synchronized (lifecycleLock) {
+            if(closed) {
+                throw new IllegalStateException("Image recognizer is closed");
+            }
+            activeRecognitions++;
         }
+    }
 
-        matrix.invert(new Matrix());
-        return matrix;
+    private void endRecognition() {
+        synchronized (lifecycleLock) {
+            activeRecognitions--;
+            if(activeRecognitions == 0) {
+                lifecycleLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Rejects new recognitions and closes the model once the running ones finished.
+     */
+    public void close() {
+        synchronized (lifecycleLock) {
+            closed = true;
+            boolean interrupted = false;
+            while (activeRecognitions > 0) {
+                try {
+                    lifecycleLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (Queue<ImagePreprocessor> idle : preprocessors.values()) {
+            ImagePreprocessor preprocessor;
+            while ((preprocessor = idle.poll()) != null) {
+                preprocessor.recycle();
+            }
+        }
+        preprocessors.clear();
+        inference.close();
     }
 
 }
@@ -0,0 +1,28 @@
+package com.rntensorflow.imagerecognition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts ARGB pixels into normalized RGB floats, the input format of the image recognition models.
+ * Kept free of Android classes so it can be benchmarked on a plain JVM.
+ */
+public class PixelNormalizer {
+
+    /**
+     * Writes (channel - imageMean) / imageStd for the R, G and B channel of every pixel as floats into dst,
+     * starting at the given byte offset.
+     */
+    public static void normalize(int[] pixels, ByteBuffer dst, int offset, int imageMean, float imageStd) {
+        final int[] values = pixels;
+        final int mean = imageMean;
+        final float std = imageStd;
+        int position = offset;
+        for (int i = 0; i < values.length; ++i) {
+            final int val = values[i];
+            dst.putFloat(position, (((val >> 16) & 0xFF) - mean) / std);
+            dst.putFloat(position + 4, (((val >> 8) & 0xFF) - mean) / std);
+            dst.putFloat(position + 8, ((val & 0xFF) - mean) / std);
+            position += 12;
+        }
+    }
+}
@@ -1,18 +1,52 @@
 package com.rntensorflow.imagerecognition;
 
 import com.facebook.react.bridge.*;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.rntensorflow.InferenceExecutor;
+import com.rntensorflow.LoadProgress;
+import com.rntensorflow.metrics.InferenceMetrics;
+import com.rntensorflow.metrics.MetricsRegistry;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.rntensorflow.converter.ArrayConverter.readableArrayToStringArray;
 
 public class RNImageRecognizerModule extends ReactContextBaseJavaModule {
 
-    private Map<String, ImageRecognizer> imageRecognizers = new HashMap<>();
+    private static final String STREAM_RESULT_EVENT = "RNImageRecognition.streamResult";
+    private static final String STREAM_ERROR_EVENT = "RNImageRecognition.streamError";
+
+    private Map<String, ImageRecognizer> imageRecognizers = new ConcurrentHashMap<>();
     private ReactApplicationContext reactContext;
+    private final InferenceExecutor executor;
+    private final MetricsRegistry metrics;
+    private final Map<String, RecognitionStream> streams = new ConcurrentHashMap<>();
+
+    private final RecognitionStream.Listener streamListener = new RecognitionStream.Listener() {
+        @Override
+        public void onResult(RecognitionStream stream, WritableMap result) {
+            emit(STREAM_RESULT_EVENT, result);
+        }
 
-    public RNImageRecognizerModule(ReactApplicationContext reactContext) {
+        @Override
+        public void onError(RecognitionStream stream, String image, Exception e) {
+            metrics.get(stream.getId()).recordError("stream");
+            WritableMap error = new WritableNativeMap();
+            error.putString("id", stream.getId());
+            error.putString("image", image);
+            error.putString("message", e.getMessage());
+            emit(STREAM_ERROR_EVENT, error);
+        }
+    };
+
+    public RNImageRecognizerModule(ReactApplicationContext reactContext, InferenceExecutor executor,
+                                   MetricsRegistry metrics) {
         super(reactContext);
         this.reactContext = reactContext;
+        this.executor = executor;
+        this.metrics = metrics;
     }
 
     @Override
@@ -22,52 +56,254 @@ public class RNImageRecognizerModule extends ReactContextBaseJavaModule {
 
     @Override
     public void onCatalystInstanceDestroy() {
+        for (String id : streams.keySet()) {
+            RecognitionStream stream = streams.remove(id);
+            if(stream != null) {
+                stream.stop();
+            }
+        }
         for (String id : imageRecognizers.keySet()) {
-            this.imageRecognizers.remove(id);
+            ImageRecognizer imageRecognizer = this.imageRecognizers.remove(id);
+            if(imageRecognizer != null) {
+                imageRecognizer.close();
+            }
+            executor.release(id);
+            metrics.remove(id);
         }
     }
 
     @ReactMethod
-    public void initImageRecognizer(String id, ReadableMap data, Promise promise) {
-        try {
-            String model = data.getString("model");
-            String labels = data.getString("labels");
-            Integer imageMean = data.hasKey("imageMean") ? data.getInt("imageMean") : null;
-            Double imageStd = data.hasKey("imageStd") ? data.getDouble("imageStd") : null;
+    public void setPriority(String id, int priority) {
+        executor.setPriority(id, priority);
+    }
 
-            ImageRecognizer imageRecognizer = ImageRecognizer.init(reactContext, model, labels, imageMean, imageStd);
-            imageRecognizers.put(id, imageRecognizer);
-            promise.resolve(true);
-        } catch (Exception e) {
-            promise.reject(e);
-        }
+    /**
+     * Loads the model and labels on the loader pool, reporting progress as {@link LoadProgress} events. Calls for the
+     * id made in the meantime are queued until the recognizer is ready. Initializing an id again closes its previous
+     * recognizer.
+     */
+    @ReactMethod
+    public void initImageRecognizer(final String id, final ReadableMap data, final Promise promise) {
+        metrics.register(id);
+        executor.executeLoading(id, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    String model = data.getString("model");
+                    String labels = data.getString("labels");
+                    Integer imageMean = data.hasKey("imageMean") ? data.getInt("imageMean") : null;
+                    Double imageStd = data.hasKey("imageStd") ? data.getDouble("imageStd") : null;
+
+                    LoadProgress progress = new LoadProgress(reactContext, id);
+                    ImageRecognizer imageRecognizer = ImageRecognizer.init(reactContext, model, labels, imageMean, imageStd,
+                            metrics.get(id), progress);
+                    ImageRecognizer previous = imageRecognizers.put(id, imageRecognizer);
+                    if(previous != null) {
+                        previous.close();
+                    }
+                    progress.imported();
+                    promise.resolve(true);
+                } catch (Exception e) {
+                    if(!imageRecognizers.containsKey(id)) {
+                        metrics.remove(id);
+                    }
+                    promise.reject(e);
+                }
+            }
+        });
     }
 
+    /**
+     * Runs zero filled images through the model before the first recognition. The spec holds the number of runs and
+     * optionally the inputName, inputSize and outputName used for recognition.
+     */
     @ReactMethod
-    public void recognize(String id, ReadableMap data, Promise promise) {
+    public void warmUp(final String id, final ReadableMap spec, final Promise promise) {
+        executor.execute(id, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    String inputName = spec.hasKey("inputName") ? spec.getString("inputName") : null;
+                    Integer inputSize = spec.hasKey("inputSize") ? spec.getInt("inputSize") : null;
+                    String outputName = spec.hasKey("outputName") ? spec.getString("outputName") : null;
+                    int runs = spec.hasKey("runs") ? spec.getInt("runs") : 1;
+
+                    WritableMap stats = getImageRecognizer(id).warmUp(inputName, inputSize, outputName, runs);
+                    new LoadProgress(reactContext, id).warmedUp();
+                    promise.resolve(stats);
+                } catch (Exception e) {
+                    promise.reject(e);
+                }
+            }
+        });
+    }
+
+    @ReactMethod
+    public void recognize(final String id, final ReadableMap data, final Promise promise) {
+        final long queuedAt = System.nanoTime();
+        executor.executeConcurrently(id, new Runnable() {
+            @Override
+            public void run() {
+                InferenceMetrics idMetrics = metrics.get(id);
+                long start = idMetrics.record("queueWait", queuedAt);
+                try {
+                    String image = data.getString("image");
+                    String inputName = data.hasKey("inputName") ? data.getString("inputName") : null;
+                    Integer inputSize = data.hasKey("inputSize") ? data.getInt("inputSize") : null;
+                    String outputName = data.hasKey("outputName") ? data.getString("outputName") : null;
+                    Integer maxResults = data.hasKey("maxResults") ? data.getInt("maxResults") : null;
+                    Double threshold = data.hasKey("threshold") ? data.getDouble("threshold") : null;
+
+                    ImageRecognizer imageRecognizer = getImageRecognizer(id);
+                    WritableArray result = imageRecognizer.recognizeImage(image, inputName, inputSize, outputName, maxResults, threshold);
+                    idMetrics.record("recognize", start);
+                    promise.resolve(result);
+                } catch (Exception e) {
+                    idMetrics.recordError("recognize");
+                    promise.reject(e);
+                }
+            }
+        });
+    }
+
+    @ReactMethod
+    public void recognizeBatch(final String id, final ReadableMap data, final Promise promise) {
+        final long queuedAt = System.nanoTime();
+        executor.executeConcurrently(id, new Runnable() {
+            @Override
+            public void run() {
+                InferenceMetrics idMetrics = metrics.get(id);
+                long start = idMetrics.record("queueWait", queuedAt);
+                try {
+                    String[] images = readableArrayToStringArray(data.getArray("images"));
+                    String inputName = data.hasKey("inputName") ? data.getString("inputName") : null;
+                    Integer inputSize = data.hasKey("inputSize") ? data.getInt("inputSize") : null;
+                    String outputName = data.hasKey("outputName") ? data.getString("outputName") : null;
+                    Integer maxResults = data.hasKey("maxResults") ? data.getInt("maxResults") : null;
+                    Double threshold = data.hasKey("threshold") ? data.getDouble("threshold") : null;
+
+                    ImageRecognizer imageRecognizer = getImageRecognizer(id);
+                    List<WritableArray> results = imageRecognizer.recognizeImages(images, inputName, inputSize, outputName, maxResults, threshold);
+                    WritableArray resultsArray = new WritableNativeArray();
+                    for (WritableArray result : results) {
+                        resultsArray.pushArray(result);
+                    }
+                    idMetrics.record("recognizeBatch", start);
+                    promise.resolve(resultsArray);
+                } catch (Exception e) {
+                    idMetrics.recordError("recognizeBatch");
+                    promise.reject(e);
+                }
+            }
+        });
+    }
+
+    @ReactMethod
+    public void startStream(String id, ReadableMap data, Promise promise) {
         try {
-            String image = data.getString("image");
             String inputName = data.hasKey("inputName") ? data.getString("inputName") : null;
             Integer inputSize = data.hasKey("inputSize") ? data.getInt("inputSize") : null;
             String outputName = data.hasKey("outputName") ? data.getString("outputName") : null;
             Integer maxResults = data.hasKey("maxResults") ? data.getInt("maxResults") : null;
             Double threshold = data.hasKey("threshold") ? data.getDouble("threshold") : null;
 
-            ImageRecognizer imageRecognizer = imageRecognizers.get(id);
-            WritableArray result = imageRecognizer.recognizeImage(image, inputName, inputSize, outputName, maxResults, threshold);
-            promise.resolve(result);
+            ImageRecognizer imageRecognizer = getImageRecognizer(id);
+
+            RecognitionStream stream = new RecognitionStream(id, imageRecognizer, inputName, inputSize, outputName,
+                    maxResults, threshold, streamListener);
+            RecognitionStream previous = streams.put(id, stream);
+            if(previous != null) {
+                previous.stop();
+            }
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject(e);
+        }
+    }
+
+    @ReactMethod
+    public void pushFrame(String id, String image) {
+        final RecognitionStream stream = streams.get(id);
+        if(stream != null && stream.push(image)) {
+            executor.executeConcurrently(id, new Runnable() {
+                @Override
+                public void run() {
+                    stream.drain();
+                }
+            });
+        }
+    }
+
+    @ReactMethod
+    public void stopStream(String id, Promise promise) {
+        try {
+            RecognitionStream stream = streams.remove(id);
+            if(stream != null) {
+                stream.stop();
+                promise.resolve(stream.getStats());
+            } else {
+                promise.resolve(null);
+            }
         } catch (Exception e) {
             promise.reject(e);
         }
     }
 
     @ReactMethod
-    public void close(String id, Promise promise) {
+    public void getBufferArenaStats(String id, Promise promise) {
         try {
-            this.imageRecognizers.remove(id);
-            promise.resolve(true);
+            ImageRecognizer imageRecognizer = getImageRecognizer(id);
+            promise.resolve(imageRecognizer.getBufferArena().getStats());
         } catch (Exception e) {
             promise.reject(e);
         }
     }
+
+    @ReactMethod
+    public void getMetrics(String id, Promise promise) {
+        try {
+            promise.resolve(metrics.snapshot(id));
+        } catch (Exception e) {
+            promise.reject(e);
+        }
+    }
+
+    @ReactMethod
+    public void close(final String id, final Promise promise) {
+        executor.execute(id, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    RecognitionStream stream = streams.remove(id);
+                    if(stream != null) {
+                        stream.stop();
+                    }
+
+                    ImageRecognizer imageRecognizer = imageRecognizers.remove(id);
+                    if(imageRecognizer != null) {
+                        imageRecognizer.close();
+                    }
+                    executor.release(id);
+                    metrics.remove(id);
+                    promise.resolve(true);
+                } catch (Exception e) {
+                    promise.reject(e);
+                }
+            }
+        });
+    }
+
+    private ImageRecognizer getImageRecognizer(String id) {
+        ImageRecognizer imageRecognizer = imageRecognizers.get(id);
+        if(imageRecognizer == null) {
+            throw new IllegalStateException("No image recognizer for id " + id + ", it is not loaded yet, failed to load or was closed");
+        }
+        return imageRecognizer;
+    }
+
+    private void emit(String eventName, WritableMap data) {
+        if(reactContext.hasActiveCatalystInstance()) {
+            reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, data);
+        }
+    }
 }
@@ -0,0 +1,132 @@
+package com.rntensorflow.imagerecognition;
+
+import android.os.SystemClock;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latest-frame-wins recognition of a stream of images, e.g. camera frames.
+ *
+ * Pushed frames go into a one slot mailbox. A frame that is still waiting when the next one arrives is dropped, so
+ * at most one frame waits while another is recognized and results never lag more than one inference behind.
+ */
+public class RecognitionStream {
+
+    public interface Listener {
+        void onResult(RecognitionStream stream, WritableMap result);
+
+        void onError(RecognitionStream stream, String image, Exception e);
+    }
+
+    private final String id;
+    private final ImageRecognizer imageRecognizer;
+    private final String inputName;
+    private final Integer inputSize;
+    private final String outputName;
+    private final Integer maxResults;
+    private final Double threshold;
+    private final Listener listener;
+
+    private final AtomicReference<Frame> mailbox = new AtomicReference<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong processedFrames = new AtomicLong();
+    private volatile boolean stopped;
+
+    public RecognitionStream(String id, ImageRecognizer imageRecognizer, String inputName, Integer inputSize,
+                             String outputName, Integer maxResults, Double threshold, Listener listener) {
+        this.id = id;
+        this.imageRecognizer = imageRecognizer;
+        this.inputName = inputName;
+        this.inputSize = inputSize;
+        this.outputName = outputName;
+        this.maxResults = maxResults;
+        this.threshold = threshold;
+        this.listener = listener;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Puts the frame into the mailbox, replacing a frame that was not picked up yet.
+     * Returns true if the caller needs to schedule {@link #drain()}, because no inference is running.
+     */
+    public boolean push(String image) {
+        if(stopped) {
+            return false;
+        }
+
+        receivedFrames.incrementAndGet();
+        Frame previous = mailbox.getAndSet(new Frame(image, SystemClock.elapsedRealtime()));
+        if(previous != null) {
+            droppedFrames.incrementAndGet();
+        }
+        return running.compareAndSet(false, true);
+    }
+
+    /**
+     * Recognizes the latest frame until the mailbox is empty. Only one drain runs at a time.
+     */
+    public void drain() {
+        while (true) {
+            Frame frame;
+            while (!stopped && (frame = mailbox.getAndSet(null)) != null) {
+                recognize(frame);
+            }
+
+            running.set(false);
+            if(stopped || mailbox.get() == null || !running.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+        if(mailbox.getAndSet(null) != null) {
+            droppedFrames.incrementAndGet();
+        }
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = new WritableNativeMap();
+        stats.putDouble("receivedFrames", receivedFrames.get());
+        stats.putDouble("processedFrames", processedFrames.get());
+        stats.putDouble("droppedFrames", droppedFrames.get());
+        return stats;
+    }
+
+    private void recognize(Frame frame) {
+        try {
+            WritableArray results = imageRecognizer.recognizeImage(frame.image, inputName, inputSize, outputName, maxResults, threshold);
+            processedFrames.incrementAndGet();
+
+            WritableMap result = getStats();
+            result.putString("id", id);
+            result.putString("image", frame.image);
+            result.putDouble("latency", SystemClock.elapsedRealtime() - frame.receivedAt);
+            result.putArray("results", results);
+            listener.onResult(this, result);
+        } catch (Exception e) {
+            listener.onError(this, frame.image, e);
+        }
+    }
+
+    private static class Frame {
+        final String image;
+        final long receivedAt;
+
+        Frame(String image, long receivedAt) {
+            this.image = image;
+            this.receivedAt = receivedAt;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.rntensorflow.metrics;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms per stage and error counts per operation of one model id.
+ *
+ * Stages are named after the path they belong to, e.g. feed.convert, feed.tensorCreate, run, fetch.convert,
+ * recognize.preprocess. A stage is timed by taking System.nanoTime() before it and calling {@link #record}.
+ */
+public class InferenceMetrics {
+
+    private final ConcurrentMap<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Records the time elapsed since startNanos for the stage and returns the current time, so the next stage can
+     * be timed from it.
+     */
+    public long record(String stage, long startNanos) {
+        long now = System.nanoTime();
+        histogram(stage).recordNanos(now - startNanos);
+        return now;
+    }
+
+    public void recordError(String operation) {
+        AtomicLong counter = errors.get(operation);
+        if(counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = errors.putIfAbsent(operation, newCounter);
+            if(counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    public WritableMap toWritableMap() {
+        WritableMap stagesMap = new WritableNativeMap();
+        for (Map.Entry<String, LatencyHistogram> stage : stages.entrySet()) {
+            stagesMap.putMap(stage.getKey(), stage.getValue().toWritableMap());
+        }
+
+        WritableMap errorsMap = new WritableNativeMap();
+        for (Map.Entry<String, AtomicLong> error : errors.entrySet()) {
+            errorsMap.putDouble(error.getKey(), error.getValue().get());
+        }
+
+        WritableMap map = new WritableNativeMap();
+        map.putMap("stages", stagesMap);
+        map.putMap("errors", errorsMap);
+        return map;
+    }
+
+    private LatencyHistogram histogram(String stage) {
+        LatencyHistogram histogram = stages.get(stage);
+        if(histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = stages.putIfAbsent(stage, newHistogram);
+            if(histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,97 @@
+package com.rntensorflow.metrics;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with log-linear buckets.
+ *
+ * Latencies are recorded in microseconds. Every power of two is split into 4 buckets, so a percentile is off by at
+ * most a quarter of its value while recording stays a couple of atomic increments.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the upper bound in microseconds of the bucket holding the given percentile (0 - 100).
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] counts = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if(total == 0) {
+            return 0;
+        }
+
+        long target = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if(seen >= target) {
+                return Math.min(bucketUpperBound(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public WritableMap toWritableMap() {
+        long n = count.get();
+        WritableMap map = new WritableNativeMap();
+        map.putDouble("count", n);
+        map.putDouble("meanMs", n > 0 ? totalMicros.get() / 1000.0 / n : 0);
+        map.putDouble("p50Ms", getPercentileMicros(50) / 1000.0);
+        map.putDouble("p95Ms", getPercentileMicros(95) / 1000.0);
+        map.putDouble("p99Ms", getPercentileMicros(99) / 1000.0);
+        map.putDouble("maxMs", maxMicros.get() / 1000.0);
+        return map;
+    }
+
+    static int bucketIndex(long micros) {
+        if(micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if(index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowerBound = (SUB_BUCKETS + index % SUB_BUCKETS) * width;
+        return lowerBound + width - 1;
+    }
+}
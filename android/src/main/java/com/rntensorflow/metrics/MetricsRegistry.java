@@ -0,0 +1,119 @@
+package com.rntensorflow.metrics;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.rntensorflow.InferenceExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the metrics of every model id, shared by the inference and image recognition modules.
+ * Snapshots include the number of calls waiting on the id's executor lane and can be reported periodically.
+ */
+public class MetricsRegistry {
+
+    public interface Reporter {
+        void report(WritableMap snapshot);
+    }
+
+    private final InferenceExecutor executor;
+    private final ConcurrentMap<String, InferenceMetrics> metrics = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> reporting;
+
+    public MetricsRegistry(InferenceExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Creates the metrics of the id when its model is initialized.
+     */
+    public InferenceMetrics register(String id) {
+        InferenceMetrics idMetrics = metrics.get(id);
+        if(idMetrics == null) {
+            InferenceMetrics newMetrics = new InferenceMetrics();
+            idMetrics = metrics.putIfAbsent(id, newMetrics);
+            if(idMetrics == null) {
+                idMetrics = newMetrics;
+            }
+        }
+        return idMetrics;
+    }
+
+    /**
+     * Returns the metrics of the id. For an id that was never registered or already removed, e.g. a call that ran after
+     * close, detached metrics are returned that do not show up in any report.
+     */
+    public InferenceMetrics get(String id) {
+        InferenceMetrics idMetrics = metrics.get(id);
+        return idMetrics != null ? idMetrics : new InferenceMetrics();
+    }
+
+    public void remove(String id) {
+        metrics.remove(id);
+    }
+
+    public WritableMap snapshot(String id) {
+        WritableMap snapshot = get(id).toWritableMap();
+        snapshot.putInt("queueDepth", executor.getQueueDepth(id));
+        return snapshot;
+    }
+
+    public WritableMap snapshotAll() {
+        WritableMap snapshots = new WritableNativeMap();
+        for (Map.Entry<String, InferenceMetrics> idMetrics : metrics.entrySet()) {
+            WritableMap snapshot = idMetrics.getValue().toWritableMap();
+            snapshot.putInt("queueDepth", executor.getQueueDepth(idMetrics.getKey()));
+            snapshots.putMap(idMetrics.getKey(), snapshot);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Reports a snapshot of all ids every intervalMs, replacing a previous reporting schedule.
+     */
+    public synchronized void startReporting(long intervalMs, final Reporter reporter) {
+        if(intervalMs <= 0) {
+            throw new IllegalArgumentException("Metrics interval has to be greater than 0 but was " + intervalMs);
+        }
+        stopReporting();
+        if(scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "RNTensorFlow-metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        reporting = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                reporter.report(snapshotAll());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopReporting() {
+        if(reporting != null) {
+            reporting.cancel(false);
+            reporting = null;
+        }
+    }
+
+    public synchronized void shutdown() {
+        stopReporting();
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
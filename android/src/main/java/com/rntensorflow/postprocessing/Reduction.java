@@ -0,0 +1,315 @@
+package com.rntensorflow.postprocessing;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.rntensorflow.converter.BinaryConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reduces a fetched output natively so only the result crosses the bridge.
+ *
+ * A reduction is described by a spec {op, axis, k, threshold, softmax, min, max}. op is one of argmax, topK,
+ * threshold, softmax, uint8 or float16, axis defaults to the last one and softmax: true normalizes the values along the
+ * axis before op is applied.
+ */
+public class Reduction {
+
+    public static final String ARGMAX = "argmax";
+    public static final String TOP_K = "topK";
+    public static final String THRESHOLD = "threshold";
+    public static final String SOFTMAX = "softmax";
+    public static final String UINT8 = "uint8";
+    public static final String FLOAT16 = "float16";
+
+    private final String op;
+    private final int axis;
+    private final int k;
+    private final float threshold;
+    private final boolean softmax;
+    private final Float min;
+    private final Float max;
+
+    public Reduction(String op, int axis, int k, float threshold, boolean softmax, Float min, Float max) {
+        if(!ARGMAX.equals(op) && !TOP_K.equals(op) && !THRESHOLD.equals(op) && !SOFTMAX.equals(op)
+                && !UINT8.equals(op) && !FLOAT16.equals(op)) {
+            throw new IllegalArgumentException("Reduction " + op + " is not supported");
+        }
+        if(TOP_K.equals(op) && k <= 0) {
+            throw new IllegalArgumentException("topK needs a k greater than 0");
+        }
+        this.op = op;
+        this.axis = axis;
+        this.k = k;
+        this.threshold = threshold;
+        this.softmax = softmax || SOFTMAX.equals(op);
+        this.min = min;
+        this.max = max;
+    }
+
+    public static Reduction fromReadableMap(ReadableMap spec) {
+        return new Reduction(
+                spec.getString("op"),
+                spec.hasKey("axis") ? spec.getInt("axis") : -1,
+                spec.hasKey("k") ? spec.getInt("k") : 0,
+                spec.hasKey("threshold") ? (float) spec.getDouble("threshold") : Float.NEGATIVE_INFINITY,
+                spec.hasKey("softmax") && spec.getBoolean("softmax"),
+                spec.hasKey("min") ? (float) spec.getDouble("min") : null,
+                spec.hasKey("max") ? (float) spec.getDouble("max") : null);
+    }
+
+    /**
+     * Applies the reduction to the values of a tensor with the given shape. The values may be modified.
+     */
+    public WritableMap apply(float[] values, long[] shape) {
+        int axis = resolveAxis(shape);
+        int n = shape.length > 0 ? (int) shape[axis] : values.length;
+        int inner = 1;
+        for (int i = axis + 1; i < shape.length; i++) {
+            inner *= (int) shape[i];
+        }
+        int outer = n * inner > 0 ? values.length / (n * inner) : 0;
+
+        if(softmax) {
+            softmax(values, outer, n, inner);
+        }
+
+        WritableMap result = new WritableNativeMap();
+        result.putString("op", op);
+        if(ARGMAX.equals(op)) {
+            int[] indices = new int[outer * inner];
+            argmax(values, outer, n, inner, indices);
+            result.putArray("shape", toShapeArray(shape, axis));
+            result.putArray("indices", toWritableArray(indices, 0, indices.length));
+        } else if(TOP_K.equals(op)) {
+            putTopK(result, values, shape, axis, outer, n, inner);
+        } else if(THRESHOLD.equals(op)) {
+            putThreshold(result, values, shape);
+        } else if(SOFTMAX.equals(op)) {
+            result.putArray("shape", toShapeArray(shape, -1));
+            result.putArray("data", toWritableArray(values, 0, values.length));
+        } else if(UINT8.equals(op)) {
+            putUint8(result, values, shape);
+        } else {
+            ByteBuffer dst = ByteBuffer.allocate(values.length * 2).order(ByteOrder.nativeOrder());
+            for (float value : values) {
+                dst.putShort(toHalf(value));
+            }
+            dst.flip();
+            putBinary(result, dst, "FLOAT16", shape);
+        }
+        return result;
+    }
+
+    /**
+     * Normalizes each slice along the axis with a numerically stable softmax, in place.
+     */
+    public static void softmax(float[] values, int outer, int n, int inner) {
+        for (int o = 0; o < outer; o++) {
+            for (int i = 0; i < inner; i++) {
+                int base = o * n * inner + i;
+                float max = Float.NEGATIVE_INFINITY;
+                for (int j = 0; j < n; j++) {
+                    max = Math.max(max, values[base + j * inner]);
+                }
+                double sum = 0;
+                for (int j = 0; j < n; j++) {
+                    float exp = (float) Math.exp(values[base + j * inner] - max);
+                    values[base + j * inner] = exp;
+                    sum += exp;
+                }
+                for (int j = 0; j < n; j++) {
+                    values[base + j * inner] /= sum;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the index along the axis of the largest value of each slice into dst, which needs outer * inner entries.
+     */
+    public static void argmax(float[] values, int outer, int n, int inner, int[] dst) {
+        for (int o = 0; o < outer; o++) {
+            for (int i = 0; i < inner; i++) {
+                int base = o * n * inner + i;
+                int best = 0;
+                for (int j = 1; j < n; j++) {
+                    if(values[base + j * inner] > values[base + best * inner]) {
+                        best = j;
+                    }
+                }
+                dst[o * inner + i] = best;
+            }
+        }
+    }
+
+    /**
+     * Converts a float to the bits of the nearest IEEE 754 half precision value, rounding ties to even.
+     */
+    public static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int floatExponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        if(floatExponent == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+
+        int exponent = floatExponent - 127 + 15;
+        if(exponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if(exponent <= 0) {
+            if(exponent < -10) {
+                return (short) sign;
+            }
+            // Subnormal half, shift the implicit leading bit into the mantissa
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int rest = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if(rest > halfway || (rest == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+
+        int half = (exponent << 10) | (mantissa >> 13);
+        int rest = mantissa & 0x1FFF;
+        if(rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+            // A carry out of the mantissa correctly rounds up into the exponent
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    private void putTopK(WritableMap result, float[] values, long[] shape, int axis, int outer, int n, int inner) {
+        int[] indices = new int[k];
+        float[] row = inner > 1 ? new float[n] : null;
+        WritableArray indicesArray = new WritableNativeArray();
+        WritableArray valuesArray = new WritableNativeArray();
+        for (int o = 0; o < outer; o++) {
+            for (int i = 0; i < inner; i++) {
+                int base = o * n * inner + i;
+                float[] src = values;
+                int offset = base;
+                if(row != null) {
+                    for (int j = 0; j < n; j++) {
+                        row[j] = values[base + j * inner];
+                    }
+                    src = row;
+                    offset = 0;
+                }
+
+                int found = TopK.select(src, offset, n, k, threshold, indices);
+                WritableArray rowIndices = new WritableNativeArray();
+                WritableArray rowValues = new WritableNativeArray();
+                for (int r = 0; r < found; r++) {
+                    rowIndices.pushInt(indices[r] - offset);
+                    rowValues.pushDouble(src[indices[r]]);
+                }
+                indicesArray.pushArray(rowIndices);
+                valuesArray.pushArray(rowValues);
+            }
+        }
+        result.putArray("shape", toShapeArray(shape, axis));
+        result.putArray("indices", indicesArray);
+        result.putArray("values", valuesArray);
+    }
+
+    private void putThreshold(WritableMap result, float[] values, long[] shape) {
+        WritableArray indicesArray = new WritableNativeArray();
+        WritableArray valuesArray = new WritableNativeArray();
+        for (int i = 0; i < values.length; i++) {
+            if(values[i] > threshold) {
+                indicesArray.pushInt(i);
+                valuesArray.pushDouble(values[i]);
+            }
+        }
+        result.putArray("shape", toShapeArray(shape, -1));
+        result.putArray("indices", indicesArray);
+        result.putArray("values", valuesArray);
+    }
+
+    private void putUint8(WritableMap result, float[] values, long[] shape) {
+        float low = min != null ? min : Float.POSITIVE_INFINITY;
+        float high = max != null ? max : Float.NEGATIVE_INFINITY;
+        if(min == null || max == null) {
+            for (float value : values) {
+                if(min == null) {
+                    low = Math.min(low, value);
+                }
+                if(max == null) {
+                    high = Math.max(high, value);
+                }
+            }
+        }
+        if(values.length == 0) {
+            low = 0;
+            high = 0;
+        }
+
+        float scale = high > low ? (high - low) / 255 : 1;
+        ByteBuffer dst = ByteBuffer.allocate(values.length);
+        for (float value : values) {
+            int quantized = Math.round((value - low) / scale);
+            dst.put((byte) Math.max(0, Math.min(255, quantized)));
+        }
+        dst.flip();
+
+        putBinary(result, dst, "UINT8", shape);
+        result.putDouble("min", low);
+        result.putDouble("scale", scale);
+    }
+
+    private static void putBinary(WritableMap result, ByteBuffer data, String dtype, long[] shape) {
+        result.putString("data", BinaryConverter.byteBufferToBase64(data));
+        result.putString("encoding", BinaryConverter.ENCODING_BASE64);
+        result.putString("dtype", dtype);
+        result.putString("byteOrder", ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? "littleEndian" : "bigEndian");
+        result.putArray("shape", toShapeArray(shape, -1));
+    }
+
+    private int resolveAxis(long[] shape) {
+        if(shape.length == 0) {
+            return 0;
+        }
+        int resolved = axis < 0 ? shape.length + axis : axis;
+        if(resolved < 0 || resolved >= shape.length) {
+            throw new IllegalArgumentException("Axis " + axis + " is out of range for a tensor of rank " + shape.length);
+        }
+        return resolved;
+    }
+
+    private static WritableArray toShapeArray(long[] shape, int skipAxis) {
+        WritableArray array = new WritableNativeArray();
+        for (int i = 0; i < shape.length; i++) {
+            if(i != skipAxis) {
+                array.pushDouble(shape[i]);
+            }
+        }
+        return array;
+    }
+
+    private static WritableArray toWritableArray(int[] values, int offset, int length) {
+        WritableArray array = new WritableNativeArray();
+        for (int i = offset; i < offset + length; i++) {
+            array.pushInt(values[i]);
+        }
+        return array;
+    }
+
+    private static WritableArray toWritableArray(float[] values, int offset, int length) {
+        WritableArray array = new WritableNativeArray();
+        for (int i = offset; i < offset + length; i++) {
+            array.pushDouble(values[i]);
+        }
+        return array;
+    }
+}
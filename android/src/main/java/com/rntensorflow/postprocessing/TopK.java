@@ -0,0 +1,84 @@
+package com.rntensorflow.postprocessing;
+
+/**
+ * Selects the k largest scores above a threshold with a bounded min-heap, without boxing or sorting all values.
+ */
+public class TopK {
+
+    /**
+     * Writes the indices of the k largest values greater than threshold into dstIndices, ordered by descending value
+     * (lower index first on ties), and returns how many were found. dstIndices needs room for k entries.
+     */
+    public static int select(float[] values, int k, float threshold, int[] dstIndices) {
+        return select(values, 0, values.length, k, threshold, dstIndices);
+    }
+
+    /**
+     * Same as {@link #select(float[], int, float, int[])} on the slice starting at offset, e.g. one row of a batch.
+     * The indices written are absolute positions in values.
+     */
+    public static int select(float[] values, int offset, int length, int k, float threshold, int[] dstIndices) {
+        if(k <= 0) {
+            return 0;
+        }
+
+        int[] heap = dstIndices;
+        int size = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if(!(values[i] > threshold)) {
+                continue;
+            }
+
+            if(size < k) {
+                heap[size] = i;
+                siftUp(values, heap, size);
+                size++;
+            } else if(less(values, heap[0], i)) {
+                heap[0] = i;
+                siftDown(values, heap, 0, size);
+            }
+        }
+
+        for (int n = size - 1; n > 0; n--) {
+            int smallest = heap[0];
+            heap[0] = heap[n];
+            heap[n] = smallest;
+            siftDown(values, heap, 0, n);
+        }
+        return size;
+    }
+
+    private static boolean less(float[] values, int a, int b) {
+        return values[a] < values[b] || (values[a] == values[b] && a > b);
+    }
+
+    private static void siftUp(float[] values, int[] heap, int pos) {
+        int index = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if(!less(values, index, heap[parent])) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = index;
+    }
+
+    private static void siftDown(float[] values, int[] heap, int pos, int size) {
+        int index = heap[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            if(child + 1 < size && less(values, heap[child + 1], heap[child])) {
+                child++;
+            }
+            if(!less(values, heap[child], index)) {
+                break;
+            }
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = index;
+    }
+}
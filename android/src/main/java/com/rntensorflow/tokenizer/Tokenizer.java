@@ -0,0 +1,239 @@
+package com.rntensorflow.tokenizer;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.rntensorflow.ResourceManager;
+import org.tensorflow.DataType;
+
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns text into the token ids of a vocab file, so raw text is all that has to cross the bridge for text models.
+ *
+ * In wordpiece mode the text is split on whitespace and punctuation and every word is split greedily into the longest
+ * pieces of the vocab, continuation pieces carry the "##" prefix (BERT style). In whitespace mode every whitespace
+ * separated word is looked up as is. Words that can not be encoded map to the unknown token. An instance is immutable
+ * and can be shared between threads.
+ */
+public class Tokenizer {
+
+    public static final String WORDPIECE = "wordpiece";
+    public static final String WHITESPACE = "whitespace";
+
+    private static final int DEFAULT_MAX_LENGTH = 128;
+    private static final int MAX_CHARS_PER_WORD = 100;
+    private static final String CONTINUATION_PREFIX = "##";
+
+    private final Map<String, Integer> vocab;
+    private final boolean wordPiece;
+    private final boolean lowerCase;
+    private final int unknownId;
+    private final int startId;
+    private final int endId;
+    private final int padId;
+    private final int maxLength;
+
+    public Tokenizer(String[] tokens, String mode, boolean lowerCase, String unknownToken, String startToken,
+                     String endToken, String padToken, int maxLength) {
+        if(!WORDPIECE.equals(mode) && !WHITESPACE.equals(mode)) {
+            throw new IllegalArgumentException("Tokenizer mode " + mode + " is not supported");
+        }
+
+        this.vocab = new HashMap<>(tokens.length * 2);
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i].trim();
+            if(!token.isEmpty() && !vocab.containsKey(token)) {
+                vocab.put(token, i);
+            }
+        }
+
+        this.wordPiece = WORDPIECE.equals(mode);
+        this.lowerCase = lowerCase;
+        this.unknownId = idOf(unknownToken);
+        if(unknownId < 0) {
+            throw new IllegalArgumentException("Unknown token " + unknownToken + " is not in the vocab");
+        }
+        this.startId = idOf(startToken);
+        this.endId = idOf(endToken);
+        this.padId = idOf(padToken);
+        if(padId < 0) {
+            throw new IllegalArgumentException("Pad token " + padToken + " is not in the vocab");
+        }
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Loads the vocab file given as options.vocab, one token per line with the line number as id. The options mode,
+     * lowerCase, unknownToken, startToken, endToken, padToken and maxLength default to a BERT uncased setup. The
+     * start and end tokens are only added if they are in the vocab, the unknown and pad tokens have to be in it.
+     */
+    public static Tokenizer load(ResourceManager resourceManager, ReadableMap options) {
+        String mode = options.hasKey("mode") ? options.getString("mode") : WORDPIECE;
+        String[] tokens = resourceManager.loadCachedResourceAsString(options.getString("vocab")).split("\\r?\\n");
+        return new Tokenizer(tokens,
+                mode,
+                !options.hasKey("lowerCase") || options.getBoolean("lowerCase"),
+                options.hasKey("unknownToken") ? options.getString("unknownToken") : "[UNK]",
+                options.hasKey("startToken") ? options.getString("startToken") : (WORDPIECE.equals(mode) ? "[CLS]" : null),
+                options.hasKey("endToken") ? options.getString("endToken") : (WORDPIECE.equals(mode) ? "[SEP]" : null),
+                options.hasKey("padToken") ? options.getString("padToken") : "[PAD]",
+                options.hasKey("maxLength") ? options.getInt("maxLength") : DEFAULT_MAX_LENGTH);
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getVocabSize() {
+        return vocab.size();
+    }
+
+    /**
+     * Writes the ids of the text into dst and returns how many were written. The tokens are truncated so the start
+     * and end tokens still fit into dst.
+     */
+    public int encode(String text, int[] dst) {
+        int count = 0;
+        if(startId >= 0 && count < dst.length) {
+            dst[count++] = startId;
+        }
+        int limit = endId >= 0 ? dst.length - 1 : dst.length;
+
+        String normalized = normalize(text);
+        int wordStart = -1;
+        for (int i = 0; i < normalized.length() && count < limit; i++) {
+            char c = normalized.charAt(i);
+            if(Character.isWhitespace(c)) {
+                count = flushWord(normalized, wordStart, i, dst, count, limit);
+                wordStart = -1;
+            } else if(wordPiece && isPunctuation(c)) {
+                count = flushWord(normalized, wordStart, i, dst, count, limit);
+                count = flushWord(normalized, i, i + 1, dst, count, limit);
+                wordStart = -1;
+            } else if(wordStart < 0) {
+                wordStart = i;
+            }
+        }
+        count = flushWord(normalized, wordStart, normalized.length(), dst, count, limit);
+
+        if(endId >= 0 && count < dst.length) {
+            dst[count++] = endId;
+        }
+        return count;
+    }
+
+    /**
+     * Encodes every text into a row of sequenceLength ids, padded with the pad token, and writes the rows into dst as
+     * INT32 or INT64. With mask set the attention mask is written instead, 1 for tokens and 0 for padding.
+     */
+    public void encode(String[] texts, int sequenceLength, boolean mask, DataType dtype, ByteBuffer dst) {
+        if(dtype != DataType.INT32 && dtype != DataType.INT64) {
+            throw new IllegalArgumentException("Token ids can only be encoded as INT32 or INT64, not " + dtype.name());
+        }
+
+        int[] ids = new int[sequenceLength];
+        for (String text : texts) {
+            int count = encode(text, ids);
+            for (int i = 0; i < sequenceLength; i++) {
+                int value = mask ? (i < count ? 1 : 0) : (i < count ? ids[i] : padId);
+                if(dtype == DataType.INT64) {
+                    dst.putLong(value);
+                } else {
+                    dst.putInt(value);
+                }
+            }
+        }
+    }
+
+    private int flushWord(String text, int start, int end, int[] dst, int count, int limit) {
+        if(start < 0 || start >= end || count >= limit) {
+            return count;
+        }
+
+        String word = text.substring(start, end);
+        if(!wordPiece) {
+            dst[count++] = idOrUnknown(word);
+            return count;
+        }
+        if(word.length() > MAX_CHARS_PER_WORD) {
+            dst[count++] = unknownId;
+            return count;
+        }
+
+        int wordCount = count;
+        int pieceStart = 0;
+        while (pieceStart < word.length()) {
+            int id = -1;
+            int pieceEnd = word.length();
+            while (pieceEnd > pieceStart) {
+                String piece = word.substring(pieceStart, pieceEnd);
+                id = idOf(pieceStart > 0 ? CONTINUATION_PREFIX + piece : piece);
+                if(id >= 0) {
+                    break;
+                }
+                pieceEnd--;
+            }
+
+            if(id < 0) {
+                // Like BERT the whole word becomes unknown if any part of it is not in the vocab
+                dst[count] = unknownId;
+                return count + 1;
+            }
+            if(wordCount < limit) {
+                dst[wordCount++] = id;
+            }
+            pieceStart = pieceEnd;
+        }
+        return wordCount;
+    }
+
+    private String normalize(String text) {
+        if(!lowerCase) {
+            return text;
+        }
+
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if(Character.getType(c) != Character.NON_SPACING_MARK) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private int idOrUnknown(String token) {
+        int id = idOf(token);
+        return id >= 0 ? id : unknownId;
+    }
+
+    private int idOf(String token) {
+        if(token == null) {
+            return -1;
+        }
+        Integer id = vocab.get(token);
+        return id != null ? id : -1;
+    }
+
+    private static boolean isPunctuation(char c) {
+        if((c >= 33 && c <= 47) || (c >= 58 && c <= 64) || (c >= 91 && c <= 96) || (c >= 123 && c <= 126)) {
+            return true;
+        }
+        switch (Character.getType(c)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package android.util;
+
+/**
+ * JVM stand-in for the Android class, backed by java.util.Base64.
+ */
+public class Base64 {
+
+    public static final int DEFAULT = 0;
+    public static final int NO_WRAP = 2;
+
+    public static String encodeToString(byte[] input, int flags) {
+        return encodeToString(input, 0, input.length, flags);
+    }
+
+    public static String encodeToString(byte[] input, int offset, int len, int flags) {
+        byte[] bytes = new byte[len];
+        System.arraycopy(input, offset, bytes, 0, len);
+        return (flags & NO_WRAP) != 0
+                ? java.util.Base64.getEncoder().encodeToString(bytes)
+                : java.util.Base64.getMimeEncoder().encodeToString(bytes);
+    }
+
+    public static byte[] decode(String str, int flags) {
+        return java.util.Base64.getMimeDecoder().decode(str);
+    }
+}
@@ -0,0 +1,49 @@
+package com.rntensorflow;
+
+import com.facebook.react.bridge.ReactContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * JVM stand-in that loads resources from the local file system only.
+ */
+public class ResourceManager {
+
+    public interface ProgressListener {
+        void onDownloadProgress(long bytesDownloaded, long totalBytes);
+
+        void onProgress(long bytesLoaded, long totalBytes);
+    }
+
+    private ProgressListener progressListener;
+
+    public ResourceManager(ReactContext reactContext) {
+    }
+
+    public ResourceManager setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public byte[] loadResource(String resource) {
+        try {
+            byte[] bytes = Files.readAllBytes(new File(resource).toPath());
+            if(progressListener != null) {
+                progressListener.onProgress(bytes.length, bytes.length);
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load resource " + resource, e);
+        }
+    }
+
+    public byte[] loadCachedResource(String resource) {
+        return loadResource(resource);
+    }
+
+    public String loadCachedResourceAsString(String resource) {
+        return new String(loadResource(resource));
+    }
+}
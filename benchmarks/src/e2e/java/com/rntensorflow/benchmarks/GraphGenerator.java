@@ -0,0 +1,133 @@
+package com.rntensorflow.benchmarks;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Tensor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+/**
+ * Builds small frozen graphs with random weights, standing in for real models of similar shape.
+ *
+ * All graphs take a float input named "input" and produce softmax scores named "output".
+ */
+public class GraphGenerator {
+
+    private final Random random = new Random(42);
+
+    /**
+     * [batch, inputSize] -> dense hiddenSize + relu -> dense numClasses -> softmax
+     */
+    public byte[] mlp(int inputSize, int hiddenSize, int numClasses) {
+        Graph graph = new Graph();
+        try {
+            Output input = placeholder(graph, "input");
+            Output hidden = unary(graph, "Relu", "hidden/relu",
+                    binary(graph, "Add", "hidden/add",
+                            binary(graph, "MatMul", "hidden/matmul", input, constant(graph, "hidden/weights", inputSize, hiddenSize)),
+                            constant(graph, "hidden/bias", hiddenSize)));
+            Output logits = binary(graph, "Add", "logits/add",
+                    binary(graph, "MatMul", "logits/matmul", hidden, constant(graph, "logits/weights", hiddenSize, numClasses)),
+                    constant(graph, "logits/bias", numClasses));
+            unary(graph, "Softmax", "output", logits);
+            return graph.toGraphDef();
+        } finally {
+            graph.close();
+        }
+    }
+
+    /**
+     * [batch, imageSize, imageSize, 3] -> conv 3x3 stride 2 + relu -> global average pool -> dense numClasses -> softmax
+     */
+    public byte[] convNet(int filters, int numClasses) {
+        Graph graph = new Graph();
+        try {
+            Output input = placeholder(graph, "input");
+            Output conv = graph.opBuilder("Conv2D", "conv/conv2d")
+                    .addInput(input)
+                    .addInput(constant(graph, "conv/filter", 3, 3, 3, filters))
+                    .setAttr("strides", new long[] {1, 2, 2, 1})
+                    .setAttr("padding", "SAME")
+                    .build()
+                    .output(0);
+            Output relu = unary(graph, "Relu", "conv/relu", conv);
+
+            Tensor axes = Tensor.create(new int[] {1, 2});
+            Output reductionIndices;
+            try {
+                reductionIndices = graph.opBuilder("Const", "pool/axes")
+                        .setAttr("dtype", DataType.INT32)
+                        .setAttr("value", axes)
+                        .build()
+                        .output(0);
+            } finally {
+                axes.close();
+            }
+            Output pool = binary(graph, "Mean", "pool/mean", relu, reductionIndices);
+
+            Output logits = binary(graph, "Add", "logits/add",
+                    binary(graph, "MatMul", "logits/matmul", pool, constant(graph, "logits/weights", filters, numClasses)),
+                    constant(graph, "logits/bias", numClasses));
+            unary(graph, "Softmax", "output", logits);
+            return graph.toGraphDef();
+        } finally {
+            graph.close();
+        }
+    }
+
+    public static File write(byte[] graphDef, String name) throws IOException {
+        File file = File.createTempFile(name, ".pb");
+        file.deleteOnExit();
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(graphDef);
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+
+    private static Output placeholder(Graph graph, String name) {
+        return graph.opBuilder("Placeholder", name)
+                .setAttr("dtype", DataType.FLOAT)
+                .build()
+                .output(0);
+    }
+
+    private Output constant(Graph graph, String name, long... shape) {
+        int numElements = 1;
+        for (long dimension : shape) {
+            numElements *= dimension;
+        }
+        float[] values = new float[numElements];
+        float scale = (float) Math.sqrt(2.0 / shape[0]);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) random.nextGaussian() * scale;
+        }
+
+        Tensor tensor = Tensor.create(shape, FloatBuffer.wrap(values));
+        try {
+            return graph.opBuilder("Const", name)
+                    .setAttr("dtype", DataType.FLOAT)
+                    .setAttr("value", tensor)
+                    .build()
+                    .output(0);
+        } finally {
+            tensor.close();
+        }
+    }
+
+    private static Output unary(Graph graph, String type, String name, Output input) {
+        return graph.opBuilder(type, name).addInput(input).build().output(0);
+    }
+
+    private static Output binary(Graph graph, String type, String name, Output first, Output second) {
+        return graph.opBuilder(type, name).addInput(first).addInput(second).build().output(0);
+    }
+}
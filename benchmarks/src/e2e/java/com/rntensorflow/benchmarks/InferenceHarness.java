@@ -0,0 +1,194 @@
+package com.rntensorflow.benchmarks;
+
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.rntensorflow.BufferArena;
+import com.rntensorflow.RNTensorflowInference;
+import com.rntensorflow.converter.ArrayConverter;
+import org.tensorflow.DataType;
+import org.tensorflow.Tensor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Headless end-to-end benchmark of RNTensorflowInference on the desktop TensorFlow runtime.
+ *
+ * For every generated model it measures the init time, the latency of the first inference, the steady state
+ * latency and throughput and the memory of the full load -> feed -> run -> fetch cycle. Feeding converts a bridge
+ * array into a tensor the way the inference module does, fetching converts the output back into a bridge array.
+ *
+ * Arguments: [measureSeconds] [warmupIterations]
+ */
+public class InferenceHarness {
+
+    private static final String INPUT_NAME = "input";
+    private static final String OUTPUT_NAME = "output";
+
+    public static void main(String[] args) throws Exception {
+        double measureSeconds = args.length > 0 ? Double.parseDouble(args[0]) : 5;
+        int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        GraphGenerator generator = new GraphGenerator();
+        Scenario[] scenarios = new Scenario[] {
+                new Scenario("mlp-784x512x10", generator.mlp(784, 512, 10), new long[] {1, 784}),
+                new Scenario("mlp-784x512x10-batch32", generator.mlp(784, 512, 10), new long[] {32, 784}),
+                new Scenario("conv-224x224x3-1001", generator.convNet(32, 1001), new long[] {1, 224, 224, 3})
+        };
+
+        System.out.println(String.format("%-24s %9s %9s %9s %9s %9s %10s %9s %9s %9s",
+                "model", "initMs", "firstMs", "p50Ms", "p99Ms", "meanMs", "ops/s", "heapMB", "rssMB", "peakTfMB"));
+        for (Scenario scenario : scenarios) {
+            System.out.println(scenario.run(measureSeconds, warmupIterations));
+        }
+    }
+
+    private static class Scenario {
+        private final String name;
+        private final byte[] graphDef;
+        private final long[] inputShape;
+
+        Scenario(String name, byte[] graphDef, long[] inputShape) {
+            this.name = name;
+            this.graphDef = graphDef;
+            this.inputShape = inputShape;
+        }
+
+        String run(double measureSeconds, int warmupIterations) throws IOException {
+            File model = GraphGenerator.write(graphDef, name);
+            ReadableArray input = randomInput(inputShape);
+
+            long start = System.nanoTime();
+            RNTensorflowInference inference = RNTensorflowInference.init(new ReactContext(), model.getPath());
+            double initMs = (System.nanoTime() - start) / 1e6;
+            try {
+                start = System.nanoTime();
+                cycle(inference, input);
+                double firstMs = (System.nanoTime() - start) / 1e6;
+
+                for (int i = 0; i < warmupIterations; i++) {
+                    cycle(inference, input);
+                }
+
+                long[] latencies = new long[1024];
+                int count = 0;
+                long measureNanos = (long) (measureSeconds * 1e9);
+                long measureStart = System.nanoTime();
+                long now = measureStart;
+                while (now - measureStart < measureNanos) {
+                    cycle(inference, input);
+                    long end = System.nanoTime();
+                    if(count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = end - now;
+                    now = end;
+                }
+                Arrays.sort(latencies, 0, count);
+
+                double totalSeconds = (now - measureStart) / 1e9;
+                WritableMap memoryStats = inference.getTensorMemory().getStats();
+                return String.format("%-24s %9.2f %9.2f %9.3f %9.3f %9.3f %10.1f %9.1f %9.1f %9.2f",
+                        name, initMs, firstMs,
+                        latencies[count / 2] / 1e6,
+                        latencies[Math.min((int) (count * 0.99), count - 1)] / 1e6,
+                        totalSeconds * 1e3 / count,
+                        count / totalSeconds,
+                        usedHeapBytes() / 1048576.0,
+                        residentSetBytes() / 1048576.0,
+                        memoryStats.getDouble("peakBytes") / 1048576.0);
+            } finally {
+                inference.close();
+            }
+        }
+    }
+
+    /**
+     * One load-free inference: bridge array -> tensor -> run -> bridge array, as the module does it.
+     */
+    private static ReadableArray cycle(RNTensorflowInference inference, ReadableArray input) {
+        long[] shape = inputShapeOf(input);
+        BufferArena arena = inference.getBufferArena();
+        ByteBuffer buffer = arena.acquire(INPUT_NAME, DataType.FLOAT, shape, input.size() * 4);
+        Tensor tensor;
+        try {
+            ArrayConverter.readableArrayToFloatBuffer(input, buffer);
+            tensor = Tensor.create(DataType.FLOAT, shape, buffer);
+        } finally {
+            arena.release(INPUT_NAME, DataType.FLOAT, shape, buffer);
+        }
+
+        inference.feed(INPUT_NAME, tensor);
+        inference.run(new String[] {OUTPUT_NAME}, false);
+        return inference.fetch(OUTPUT_NAME);
+    }
+
+    private static long[] inputShapeOf(ReadableArray input) {
+        return ((ShapedArray) input).shape;
+    }
+
+    private static ReadableArray randomInput(long[] shape) {
+        int numElements = 1;
+        for (long dimension : shape) {
+            numElements *= dimension;
+        }
+
+        Random random = new Random(7);
+        ShapedArray array = new ShapedArray(shape, numElements);
+        for (int i = 0; i < numElements; i++) {
+            array.pushDouble(random.nextFloat());
+        }
+        return array;
+    }
+
+    private static long usedHeapBytes() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Resident set size of the process, which includes the native memory of TensorFlow. 0 where /proc is missing.
+     */
+    private static long residentSetBytes() {
+        File status = new File("/proc/self/status");
+        if(!status.isFile()) {
+            return 0;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(status));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if(line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // Not available
+        }
+        return 0;
+    }
+
+    private static class ShapedArray extends WritableNativeArray {
+        final long[] shape;
+
+        ShapedArray(long[] shape, int capacity) {
+            super(capacity);
+            this.shape = shape;
+        }
+    }
+}
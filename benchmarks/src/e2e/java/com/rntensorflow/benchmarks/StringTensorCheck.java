@@ -0,0 +1,114 @@
+package com.rntensorflow.benchmarks;
+
+import com.rntensorflow.converter.StringTensorEncoder;
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that STRING tensors built with StringTensorEncoder are read back by the desktop TensorFlow runtime with the
+ * exact UTF-8 bytes of every element.
+ *
+ * A scalar is read back directly, the elements of a vector are gathered one by one in a graph, as the Java API can
+ * not copy out string tensors of higher rank. Exits with status 1 on the first mismatch.
+ */
+public class StringTensorCheck {
+
+    private static final String[] VALUES = new String[] {
+            "hello",
+            "",
+            "h\u00e9llo w\u00f6rld",
+            "\u6f22\u5b57",
+            "emoji \ud83d\ude00",
+            "unpaired \ud83d surrogate",
+            repeat("long ", 100)
+    };
+
+    public static void main(String[] args) throws Exception {
+        checkScalar(VALUES[2]);
+        checkVector(VALUES);
+        System.out.println("STRING tensors of " + VALUES.length + " elements read back correctly");
+    }
+
+    private static void checkScalar(String value) throws Exception {
+        Tensor tensor = Tensor.create(DataType.STRING, new long[0], encode(value));
+        try {
+            expect("scalar", value, tensor.bytesValue());
+        } finally {
+            tensor.close();
+        }
+    }
+
+    private static void checkVector(String[] values) throws Exception {
+        Tensor input = Tensor.create(DataType.STRING, new long[] {values.length}, encode(values));
+        Graph graph = new Graph();
+        try {
+            Output placeholder = graph.opBuilder("Placeholder", "input").setAttr("dtype", DataType.STRING).build().output(0);
+            for (int i = 0; i < values.length; i++) {
+                Tensor index = Tensor.create(i);
+                try {
+                    Output indexOutput = graph.opBuilder("Const", "index" + i)
+                            .setAttr("dtype", DataType.INT32).setAttr("value", index).build().output(0);
+                    graph.opBuilder("Gather", "element" + i).addInput(placeholder).addInput(indexOutput).build();
+                } finally {
+                    index.close();
+                }
+            }
+
+            Session session = new Session(graph);
+            try {
+                Session.Runner runner = session.runner().feed("input", input);
+                for (int i = 0; i < values.length; i++) {
+                    runner.fetch("element" + i);
+                }
+                List<Tensor> elements = runner.run();
+                for (int i = 0; i < values.length; i++) {
+                    expect("element " + i, values[i], elements.get(i).bytesValue());
+                    elements.get(i).close();
+                }
+            } finally {
+                session.close();
+            }
+        } finally {
+            graph.close();
+            input.close();
+        }
+    }
+
+    private static ByteBuffer encode(String... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(StringTensorEncoder.encodedSize(values)).order(ByteOrder.nativeOrder());
+        StringTensorEncoder.encode(values, buffer);
+        if(buffer.hasRemaining()) {
+            fail("encodedSize reported " + buffer.capacity() + " bytes but " + buffer.position() + " were written");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void expect(String what, String value, byte[] actual) throws Exception {
+        byte[] expected = value.getBytes("UTF-8");
+        if(!Arrays.equals(expected, actual)) {
+            fail(what + " expected " + Arrays.toString(expected) + " but read back " + Arrays.toString(actual));
+        }
+    }
+
+    private static void fail(String message) {
+        System.err.println("STRING tensor check failed: " + message);
+        System.exit(1);
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder(value.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
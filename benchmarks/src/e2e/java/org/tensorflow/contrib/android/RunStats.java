@@ -0,0 +1,28 @@
+package org.tensorflow.contrib.android;
+
+/**
+ * JVM stand-in for the Android-only stats collector, the desktop runtime does not ship the StatSummarizer.
+ * Run metadata is counted but not summarized.
+ */
+public class RunStats implements AutoCloseable {
+
+    private static final byte[] FULL_TRACE_RUN_OPTIONS = new byte[] {0x08, 0x03};
+
+    private int runs;
+
+    public static byte[] runOptions() {
+        return FULL_TRACE_RUN_OPTIONS;
+    }
+
+    public synchronized void add(byte[] runMetadata) {
+        runs++;
+    }
+
+    public synchronized String summary() {
+        return "Per-op summaries are not available on the desktop runtime (" + runs + " runs recorded)";
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,7 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the React Native context. The library only hands it on to the ResourceManager.
+ */
+public class ReactContext {
+}
@@ -0,0 +1,19 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the React Native interface, limited to the methods the converters use.
+ */
+public interface ReadableArray {
+
+    int size();
+
+    boolean isNull(int index);
+
+    boolean getBoolean(int index);
+
+    double getDouble(int index);
+
+    int getInt(int index);
+
+    String getString(int index);
+}
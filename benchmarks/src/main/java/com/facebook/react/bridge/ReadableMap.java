@@ -0,0 +1,19 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the React Native interface, limited to the methods the benchmarks use.
+ */
+public interface ReadableMap {
+
+    boolean hasKey(String name);
+
+    boolean isNull(String name);
+
+    boolean getBoolean(String name);
+
+    double getDouble(String name);
+
+    int getInt(String name);
+
+    String getString(String name);
+}
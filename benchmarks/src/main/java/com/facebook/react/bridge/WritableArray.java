@@ -0,0 +1,21 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the React Native interface, limited to the methods the converters use.
+ */
+public interface WritableArray extends ReadableArray {
+
+    void pushNull();
+
+    void pushBoolean(boolean value);
+
+    void pushDouble(double value);
+
+    void pushInt(int value);
+
+    void pushString(String value);
+
+    void pushArray(WritableArray array);
+
+    void pushMap(WritableMap map);
+}
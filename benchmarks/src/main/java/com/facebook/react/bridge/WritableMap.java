@@ -0,0 +1,21 @@
+package com.facebook.react.bridge;
+
+/**
+ * JVM stand-in for the React Native interface, limited to the methods the library uses.
+ */
+public interface WritableMap extends ReadableMap {
+
+    void putNull(String key);
+
+    void putBoolean(String key, boolean value);
+
+    void putDouble(String key, double value);
+
+    void putInt(String key, int value);
+
+    void putString(String key, String value);
+
+    void putArray(String key, WritableArray value);
+
+    void putMap(String key, WritableMap value);
+}
@@ -0,0 +1,93 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory stand-in for the JNI backed array, modelled on React Native's JavaOnlyArray.
+ *
+ * Values are boxed into a list the way JavaOnlyArray stores them. The real array pays a JNI call per element
+ * instead, so absolute numbers differ from a device, but the converter overhead on top of it is comparable.
+ */
+public class WritableNativeArray implements WritableArray {
+
+    private final List<Object> values;
+
+    public WritableNativeArray() {
+        this.values = new ArrayList<>();
+    }
+
+    public WritableNativeArray(int capacity) {
+        this.values = new ArrayList<>(capacity);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return values.get(index) == null;
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return (Boolean) values.get(index);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return ((Number) values.get(index)).doubleValue();
+    }
+
+    @Override
+    public int getInt(int index) {
+        return ((Number) values.get(index)).intValue();
+    }
+
+    @Override
+    public String getString(int index) {
+        return (String) values.get(index);
+    }
+
+    @Override
+    public void pushNull() {
+        values.add(null);
+    }
+
+    @Override
+    public void pushBoolean(boolean value) {
+        values.add(value);
+    }
+
+    @Override
+    public void pushDouble(double value) {
+        values.add(value);
+    }
+
+    @Override
+    public void pushInt(int value) {
+        values.add(value);
+    }
+
+    @Override
+    public void pushString(String value) {
+        values.add(value);
+    }
+
+    @Override
+    public void pushArray(WritableArray array) {
+        values.add(array);
+    }
+
+    @Override
+    public void pushMap(WritableMap map) {
+        values.add(map);
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.facebook.react.bridge;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory stand-in for the JNI backed map, modelled on React Native's JavaOnlyMap.
+ */
+public class WritableNativeMap implements WritableMap {
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    @Override
+    public boolean hasKey(String name) {
+        return values.containsKey(name);
+    }
+
+    @Override
+    public boolean isNull(String name) {
+        return values.get(name) == null;
+    }
+
+    @Override
+    public boolean getBoolean(String name) {
+        return (Boolean) values.get(name);
+    }
+
+    @Override
+    public double getDouble(String name) {
+        return ((Number) values.get(name)).doubleValue();
+    }
+
+    @Override
+    public int getInt(String name) {
+        return ((Number) values.get(name)).intValue();
+    }
+
+    @Override
+    public String getString(String name) {
+        return (String) values.get(name);
+    }
+
+    @Override
+    public void putNull(String key) {
+        values.put(key, null);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putArray(String key, WritableArray value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putMap(String key, WritableMap value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.rntensorflow.benchmarks;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.rntensorflow.converter.ArrayConverter;
+import com.rntensorflow.converter.StringTensorEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between bridge arrays and Java arrays / tensor buffers, in both directions.
+ *
+ * Sizes cover a small feature vector, an ImageNet class score vector and a 224x224 RGB image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayConverterBenchmark {
+
+    @Param({"128", "1001", "150528"})
+    public int size;
+
+    private ReadableArray doubles;
+    private ReadableArray ints;
+    private ReadableArray booleans;
+    private ReadableArray strings;
+    private double[] doubleValues;
+    private float[] floatValues;
+    private int[] intValues;
+    private byte[] packedBooleans;
+    private ByteBuffer buffer;
+    private ByteBuffer stringBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        WritableNativeArray doubleArray = new WritableNativeArray(size);
+        WritableNativeArray intArray = new WritableNativeArray(size);
+        WritableNativeArray booleanArray = new WritableNativeArray(size);
+        WritableNativeArray stringArray = new WritableNativeArray(size);
+        doubleValues = new double[size];
+        floatValues = new float[size];
+        intValues = new int[size];
+        for (int i = 0; i < size; i++) {
+            doubleValues[i] = random.nextGaussian();
+            floatValues[i] = (float) doubleValues[i];
+            intValues[i] = random.nextInt(256);
+            doubleArray.pushDouble(doubleValues[i]);
+            intArray.pushInt(intValues[i]);
+            booleanArray.pushBoolean(random.nextBoolean());
+            stringArray.pushString("token" + intValues[i]);
+        }
+        doubles = doubleArray;
+        ints = intArray;
+        booleans = booleanArray;
+        strings = stringArray;
+        packedBooleans = ArrayConverter.readableArrayToByteBoolArray(booleans);
+        buffer = ByteBuffer.allocateDirect(size * 8).order(ByteOrder.nativeOrder());
+        stringBuffer = ByteBuffer.allocateDirect(StringTensorEncoder.encodedSize(ArrayConverter.readableArrayToStringArray(strings)))
+                .order(ByteOrder.nativeOrder());
+    }
+
+    @Benchmark
+    public double[] readableArrayToDoubleArray() {
+        return ArrayConverter.readableArrayToDoubleArray(doubles);
+    }
+
+    @Benchmark
+    public float[] readableArrayToFloatArray() {
+        return ArrayConverter.readableArrayToFloatArray(doubles);
+    }
+
+    @Benchmark
+    public int[] readableArrayToIntArray() {
+        return ArrayConverter.readableArrayToIntArray(ints);
+    }
+
+    @Benchmark
+    public long[] readableArrayToLongArray() {
+        return ArrayConverter.readableArrayToLongArray(doubles);
+    }
+
+    @Benchmark
+    public ByteBuffer readableArrayToDoubleBuffer() {
+        ArrayConverter.readableArrayToDoubleBuffer(doubles, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer readableArrayToFloatBuffer() {
+        ArrayConverter.readableArrayToFloatBuffer(doubles, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer readableArrayToIntBuffer() {
+        ArrayConverter.readableArrayToIntBuffer(ints, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] readableArrayToByteBoolArray() {
+        return ArrayConverter.readableArrayToByteBoolArray(booleans);
+    }
+
+    @Benchmark
+    public ByteBuffer readableArrayToStringTensorBuffer() {
+        String[] values = ArrayConverter.readableArrayToStringArray(strings);
+        stringBuffer.clear();
+        StringTensorEncoder.encode(values, stringBuffer);
+        return stringBuffer;
+    }
+
+    @Benchmark
+    public ReadableArray doubleArrayToReadableArray() {
+        return ArrayConverter.doubleArrayToReadableArray(doubleValues);
+    }
+
+    @Benchmark
+    public ReadableArray floatArrayToReadableArray() {
+        return ArrayConverter.floatArrayToReadableArray(floatValues);
+    }
+
+    @Benchmark
+    public ReadableArray intArrayToReadableArray() {
+        return ArrayConverter.intArrayToReadableArray(intValues);
+    }
+
+    @Benchmark
+    public ReadableArray byteArrayToBoolReadableArray() {
+        return ArrayConverter.byteArrayToBoolReadableArray(packedBooleans);
+    }
+}
@@ -0,0 +1,57 @@
+package com.rntensorflow.benchmarks;
+
+import com.rntensorflow.imagerecognition.PixelNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RGB normalization loop of the image recognizer for the common model input sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelNormalizerBenchmark {
+
+    private static final int IMAGE_MEAN = 117;
+    private static final float IMAGE_STD = 1;
+
+    @Param({"224", "299"})
+    public int inputSize;
+
+    private int[] pixels;
+    private ByteBuffer dst;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        pixels = new int[inputSize * inputSize];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        dst = ByteBuffer.allocateDirect(pixels.length * 3 * 4).order(ByteOrder.nativeOrder());
+    }
+
+    @Benchmark
+    public ByteBuffer normalize() {
+        PixelNormalizer.normalize(pixels, dst, 0, IMAGE_MEAN, IMAGE_STD);
+        return dst;
+    }
+}
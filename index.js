@@ -1,9 +1,99 @@
 
-import { NativeModules, Image } from 'react-native';
+import { NativeModules, Image, DeviceEventEmitter } from 'react-native';
 import uuid from 'uuid/v1';
 
 const { RNImageRecognition, RNTensorFlowInference, RNTensorFlowGraph, RNTensorFlowGraphOperations } = NativeModules;
 
+const BASE64_CHARS = 'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/'
+
+const BASE64_LOOKUP = {}
+for (let i = 0; i < BASE64_CHARS.length; i++) {
+  BASE64_LOOKUP[BASE64_CHARS[i]] = i
+}
+
+const TYPED_ARRAY_DTYPES = [
+  [Float64Array, 'double'],
+  [Float32Array, 'float'],
+  [Int32Array, 'int32'],
+  [Uint8Array, 'uint8']
+]
+
+// BigInt typed arrays are missing on older JS engines, INT64 is then fed and fetched as raw bytes
+if (typeof BigInt64Array !== 'undefined') {
+  TYPED_ARRAY_DTYPES.push([BigInt64Array, 'int64'])
+}
+
+function typedArrayToBase64(typedArray) {
+  const bytes = new Uint8Array(typedArray.buffer, typedArray.byteOffset, typedArray.byteLength)
+  const chunks = []
+  for (let i = 0; i < bytes.length; i += 3) {
+    const b0 = bytes[i]
+    const b1 = i + 1 < bytes.length ? bytes[i + 1] : 0
+    const b2 = i + 2 < bytes.length ? bytes[i + 2] : 0
+    chunks.push(
+      BASE64_CHARS[b0 >> 2] +
+      BASE64_CHARS[((b0 & 0x03) << 4) | (b1 >> 4)] +
+      (i + 1 < bytes.length ? BASE64_CHARS[((b1 & 0x0f) << 2) | (b2 >> 6)] : '=') +
+      (i + 2 < bytes.length ? BASE64_CHARS[b2 & 0x3f] : '='))
+  }
+  return chunks.join('')
+}
+
+function base64ToArrayBuffer(base64) {
+  const padding = base64.endsWith('==') ? 2 : base64.endsWith('=') ? 1 : 0
+  const bytes = new Uint8Array(base64.length / 4 * 3 - padding)
+  let p = 0
+  for (let i = 0; i < base64.length; i += 4) {
+    const e0 = BASE64_LOOKUP[base64[i]]
+    const e1 = BASE64_LOOKUP[base64[i + 1]]
+    const e2 = BASE64_LOOKUP[base64[i + 2]] || 0
+    const e3 = BASE64_LOOKUP[base64[i + 3]] || 0
+    bytes[p++] = (e0 << 2) | (e1 >> 4)
+    if (p < bytes.length) bytes[p++] = ((e1 & 0x0f) << 4) | (e2 >> 2)
+    if (p < bytes.length) bytes[p++] = ((e2 & 0x03) << 6) | e3
+  }
+  return bytes.buffer
+}
+
+function toTypedArray(dtype, buffer) {
+  const entry = TYPED_ARRAY_DTYPES.find(([, name]) => name === dtype.toLowerCase())
+  return entry !== undefined ? new entry[0](buffer) : new Uint8Array(buffer)
+}
+
+function dtypeOfTypedArray(typedArray) {
+  const entry = TYPED_ARRAY_DTYPES.find(([type]) => typedArray instanceof type)
+  return entry !== undefined ? entry[1] : undefined
+}
+
+function toBinaryFeed(data) {
+  if (!ArrayBuffer.isView(data.data)) {
+    return data
+  }
+  return Object.assign({}, data, {
+    data: typedArrayToBase64(data.data),
+    dtype: data.dtype !== undefined ? data.dtype : dtypeOfTypedArray(data.data),
+    encoding: 'base64'
+  })
+}
+
+function withLoadProgress(id, onLoadProgress, init) {
+  if (onLoadProgress === undefined) {
+    return init
+  }
+  const listener = DeviceEventEmitter.addListener('RNTensorFlow.loadProgress', progress => {
+    if (progress.id === id) {
+      onLoadProgress(progress)
+    }
+  })
+  return init.then(result => {
+    listener.remove()
+    return result
+  }, error => {
+    listener.remove()
+    throw error
+  })
+}
+
 class TensorFlowOperation {
   constructor(id, opName) {
     this.id = id
@@ -60,6 +150,10 @@ class TensorFlowGraph {
     return new TensorFlowOperation(this.id, name)
   }
 
+  describe() {
+    return RNTensorFlowGraph.describeGraph(this.id)
+  }
+
   close() {
     return RNTensorFlowGraph.close(this.id)
   }
@@ -67,18 +161,41 @@ class TensorFlowGraph {
 
 class TensorFlow {
 
-  constructor(modelLocation) {
+  constructor(modelLocation, options) {
     this.id = uuid()
+    if (options !== undefined && options.priority !== undefined && RNTensorFlowInference.setPriority) {
+      RNTensorFlowInference.setPriority(this.id, options.priority)
+    }
     const resolvedModelLocation = Image.resolveAssetSource(modelLocation) != null
       ? Image.resolveAssetSource(modelLocation).uri
       : modelLocation
-    this.init = RNTensorFlowInference.initTensorFlowInference(this.id, resolvedModelLocation)
+    const init = RNTensorFlowInference.initTensorFlowInference(this.id, resolvedModelLocation)
+    this.init = withLoadProgress(this.id, options !== undefined ? options.onLoadProgress : undefined,
+      options !== undefined && options.warmUp !== undefined && RNTensorFlowInference.warmUp
+        ? init.then(() => RNTensorFlowInference.warmUp(this.id, options.warmUp)).then(stats => { this.warmUpStats = stats })
+        : init)
     this.tfGraph = new TensorFlowGraph(this.id)
   }
 
+  async getWarmUpStats() {
+    await this.init
+    return this.warmUpStats
+  }
+
+  async loadTokenizer(options) {
+    await this.init
+    if (!RNTensorFlowInference.loadTokenizer) {
+      throw new Error('Native tokenization is not supported on this platform')
+    }
+    const vocab = Image.resolveAssetSource(options.vocab) != null
+      ? Image.resolveAssetSource(options.vocab).uri
+      : options.vocab
+    return RNTensorFlowInference.loadTokenizer(this.id, Object.assign({}, options, { vocab }))
+  }
+
   async feed(data) {
     await this.init
-    return RNTensorFlowInference.feed(this.id, data)
+    return RNTensorFlowInference.feed(this.id, toBinaryFeed(data))
   }
 
   async run(outputNames, withStats) {
@@ -86,9 +203,62 @@ class TensorFlow {
     return RNTensorFlowInference.run(this.id, outputNames, withStats !== undefined ? withStats : false)
   }
 
-  async fetch(outputName) {
+  async fetch(outputName, reduction) {
+    await this.init
+    if (reduction === undefined) {
+      return RNTensorFlowInference.fetch(this.id, outputName)
+    }
+    if (!RNTensorFlowInference.fetchReduced) {
+      throw new Error('Fetching with a reduction is not supported on this platform')
+    }
+    const result = await RNTensorFlowInference.fetchReduced(this.id, outputName, reduction)
+    if (result.encoding === undefined) {
+      return result
+    }
+    const buffer = base64ToArrayBuffer(result.data)
+    return Object.assign({}, result, {
+      data: result.dtype === 'FLOAT16' ? new Uint16Array(buffer) : new Uint8Array(buffer)
+    })
+  }
+
+  async runOnce(inputs, outputNames) {
     await this.init
-    return RNTensorFlowInference.fetch(this.id, outputName)
+    return RNTensorFlowInference.runOnce(this.id, inputs.map(toBinaryFeed), outputNames)
+  }
+
+  async fetchHandle(outputName) {
+    await this.init
+    return RNTensorFlowInference.fetchHandle(this.id, outputName)
+  }
+
+  async fetchTypedArray(outputName) {
+    await this.init
+    const result = await RNTensorFlowInference.fetchBinary(this.id, outputName)
+    return {
+      data: toTypedArray(result.dtype, base64ToArrayBuffer(result.data)),
+      dtype: result.dtype,
+      shape: result.shape
+    }
+  }
+
+  async getBufferArenaStats() {
+    await this.init
+    return RNTensorFlowInference.getBufferArenaStats(this.id)
+  }
+
+  async getStatSummary(topN) {
+    await this.init
+    return RNTensorFlowInference.getStatSummary(this.id, topN !== undefined ? topN : 10)
+  }
+
+  async getMetrics() {
+    await this.init
+    return RNTensorFlowInference.getMetrics(this.id)
+  }
+
+  async getMemoryStats() {
+    await this.init
+    return RNTensorFlowInference.getMemoryStats(this.id)
   }
 
   async graph() {
@@ -102,9 +272,43 @@ class TensorFlow {
   }
 }
 
+async function runPipeline(stages) {
+  await Promise.all(stages.map(stage => stage.model.init))
+  return RNTensorFlowInference.runPipeline(stages.map(stage => ({
+    id: stage.model.id,
+    inputs: stage.inputs.map(toBinaryFeed),
+    outputNames: stage.outputNames,
+    keepHandles: stage.keepHandles === true
+  })))
+}
+
+function releaseHandle(handle) {
+  return RNTensorFlowInference.releaseHandle(handle)
+}
+
+let metricsListener
+
+function startMetricsEvents(intervalMs, callback) {
+  stopMetricsEvents()
+  metricsListener = DeviceEventEmitter.addListener('RNTensorFlow.metrics', callback)
+  return RNTensorFlowInference.startMetricsEvents(intervalMs).catch(error => {
+    stopMetricsEvents()
+    throw error
+  })
+}
+
+function stopMetricsEvents() {
+  if (metricsListener !== undefined) {
+    metricsListener.remove()
+    metricsListener = undefined
+  }
+  RNTensorFlowInference.stopMetricsEvents()
+}
+
 class TfImageRecognition {
-  constructor(data) {
+  constructor(options) {
     this.id = uuid()
+    const data = Object.assign({}, options)
     data['model'] = Image.resolveAssetSource(data['model']) != null
       ? Image.resolveAssetSource(data['model']).uri
       : data['model']
@@ -113,7 +317,23 @@ class TfImageRecognition {
       ? Image.resolveAssetSource(data['labels']).uri
       : data['labels']
 
-    this.init = RNImageRecognition.initImageRecognizer(this.id, data)
+    if (data['priority'] !== undefined && RNImageRecognition.setPriority) {
+      RNImageRecognition.setPriority(this.id, data['priority'])
+    }
+
+    const onLoadProgress = data['onLoadProgress']
+    delete data['onLoadProgress']
+
+    const init = RNImageRecognition.initImageRecognizer(this.id, data)
+    this.init = withLoadProgress(this.id, onLoadProgress,
+      data['warmUp'] !== undefined && RNImageRecognition.warmUp
+        ? init.then(() => RNImageRecognition.warmUp(this.id, data['warmUp'])).then(stats => { this.warmUpStats = stats })
+        : init)
+  }
+
+  async getWarmUpStats() {
+    await this.init
+    return this.warmUpStats
   }
 
   async recognize(data) {
@@ -126,10 +346,66 @@ class TfImageRecognition {
     return RNImageRecognition.recognize(this.id, data)
   }
 
+  async recognizeBatch(data) {
+    await this.init
+
+    data['images'] = data['images'].map(image => Image.resolveAssetSource(image) != null
+      ? Image.resolveAssetSource(image).uri
+      : image)
+
+    return RNImageRecognition.recognizeBatch(this.id, data)
+  }
+
+  async startStream(data, onResult, onError) {
+    await this.init
+    this.stopStreamListeners()
+    this.streamListeners = [
+      DeviceEventEmitter.addListener('RNImageRecognition.streamResult', result => {
+        if (result.id === this.id) onResult(result)
+      }),
+      DeviceEventEmitter.addListener('RNImageRecognition.streamError', error => {
+        if (error.id === this.id && onError !== undefined) onError(error)
+      })
+    ]
+    return RNImageRecognition.startStream(this.id, data !== undefined ? data : {})
+  }
+
+  pushFrame(image) {
+    const resolvedImage = Image.resolveAssetSource(image) != null
+      ? Image.resolveAssetSource(image).uri
+      : image
+    RNImageRecognition.pushFrame(this.id, resolvedImage)
+  }
+
+  async stopStream() {
+    await this.init
+    const stats = await RNImageRecognition.stopStream(this.id)
+    this.stopStreamListeners()
+    return stats
+  }
+
+  stopStreamListeners() {
+    if (this.streamListeners !== undefined) {
+      this.streamListeners.forEach(listener => listener.remove())
+      this.streamListeners = undefined
+    }
+  }
+
+  async getBufferArenaStats() {
+    await this.init
+    return RNImageRecognition.getBufferArenaStats(this.id)
+  }
+
+  async getMetrics() {
+    await this.init
+    return RNImageRecognition.getMetrics(this.id)
+  }
+
   async close() {
     await this.init
+    this.stopStreamListeners()
     return RNImageRecognition.close(this.id)
   }
 }
 
-export { TensorFlow, TfImageRecognition }
+export { TensorFlow, TfImageRecognition, runPipeline, releaseHandle, startMetricsEvents, stopMetricsEvents }